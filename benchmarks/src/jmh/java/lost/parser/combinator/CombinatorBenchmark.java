@@ -0,0 +1,94 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the combinators of {@link Parsers} over a whole input of {@code key=value;} records, see {@link Throughput}
+ * <p>
+ * on the failure path every record has a value no alternative matches, so each combinator backtracks
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinatorBenchmark {
+
+    @Param({"64", "4194304"})
+    int size;
+
+    @Param({"heap", "direct"})
+    String buffer;
+
+    @Param({"success", "failure"})
+    String path;
+
+    final Parser<ByteBuffer> key = Parsers.takeWhile(ByteClass.range('a', 'z'));
+    final Parser<String> value =
+            Parsers.or(Parsers.str("true"), Parsers.str("false"), Parsers.str("null"), Parsers.str("none"));
+    final Parser<String> or = value;
+    final Parser<String> and = Parsers.and(
+            Parsers.and(key, Parsers.b((byte) '='), (k, e) -> k),
+            Parsers.and(value, Parsers.b((byte) ';'), (v, e) -> v),
+            (k, v) -> v);
+    final Parser<Optional<String>> opt = Parsers.opt(Parsers.str("key="));
+    final Parser<List<Byte>> repeat = Parsers.repeat(Parsers.b((byte) 'k'), 1, 16);
+    final Parser<List<String>> zeroOrMany = Parsers.zeroOrMany(and);
+
+    Input records;
+    Input values;
+    final Sink out = new Sink();
+
+    @Setup
+    public void setup() {
+        boolean success = path.equals("success");
+        records = input(success ? "key=true;kk=false;kkk=null;" : "key=yes;kk=no;kkk=maybe;");
+        values = input(success ? "truefalsenullnone" : "yes!nope!maybe!");
+    }
+
+    private Input input(String unit) {
+        var data = buffer.equals("heap") ? ByteBuffer.allocate(size) : ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) data.put(i, (byte) unit.charAt(i % unit.length()));
+        return Input.of(data);
+    }
+
+    @Benchmark
+    public long or(Throughput throughput) {
+        return throughput.parseAll(or, values, 1, out);
+    }
+
+    @Benchmark
+    public long and(Throughput throughput) {
+        return throughput.parseAll(and, records, 1, out);
+    }
+
+    @Benchmark
+    public long opt(Throughput throughput) {
+        return throughput.parseAll(opt, records, 1, out);
+    }
+
+    @Benchmark
+    public long repeat(Throughput throughput) {
+        return throughput.parseAll(repeat, records, 1, out);
+    }
+
+    @Benchmark
+    public long zeroOrMany(Throughput throughput) {
+        return throughput.parseAll(zeroOrMany, records, 1, out);
+    }
+}
@@ -0,0 +1,56 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * interpreted vs {@link Parsers#compile compiled} parsing of a {@code key=value,} list with a 5-way value choice
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileBenchmark {
+
+    Parser<List<String>> interpreted;
+    Parser<List<String>> compiled;
+    ByteBuffer input;
+
+    @Setup
+    public void setup() {
+        var key = Parsers.takeWhile(ByteClass.range('a', 'z'));
+        var value = Parsers.or(
+                Parsers.str("true"), Parsers.str("false"), Parsers.str("null"), Parsers.str("yes"), Parsers.str("no"));
+        var entry = Parsers.and(Parsers.and(key, Parsers.b((byte) '='), (k, eq) -> k), value, (k, v) -> v);
+        interpreted = Parsers.repeat(Parsers.and(entry, Parsers.opt(Parsers.b((byte) ',')), (e, comma) -> e), 1);
+        compiled = Parsers.compile(interpreted);
+
+        var values = new String[] {"true", "false", "null", "yes", "no"};
+        var sb = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) sb.append("key=").append(values[i % values.length]).append(',');
+        input = ByteBuffer.wrap(sb.toString().getBytes());
+    }
+
+    @Benchmark
+    public List<String> interpreted() {
+        return interpreted.parse(input.clear()).value();
+    }
+
+    @Benchmark
+    public List<String> compiled() {
+        return compiled.parse(input.clear()).value();
+    }
+}
@@ -0,0 +1,117 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the primitive parsers of {@link Parsers} over a whole input, see {@link Throughput}
+ * <p>
+ * on the success path the input is a repetition of what the parser matches, on the failure path of what it doesn't
+ * (for the scanning parsers: the delimiter never comes)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveBenchmark {
+
+    @Param({"64", "4194304"})
+    int size;
+
+    @Param({"heap", "direct"})
+    String buffer;
+
+    @Param({"success", "failure"})
+    String path;
+
+    final Parser<Byte> b = Parsers.b((byte) 'a');
+    final Parser<Character> ch = Parsers.ch('a');
+    final Parser<String> str = Parsers.str("hello");
+    final Parser<ByteBuffer> untilByte = Parsers.untilByte(ByteClass.of(";"), true);
+    final Parser<ByteBuffer> untilBytePredicate = Parsers.untilByte(c -> c == ';', true);
+    final Parser<ByteBuffer> untilChar = Parsers.untilChar(c -> c == ';', true);
+    final Parser<Void> skipWhitespaces = Parsers.skipWhitespaces();
+
+    Input bytes;
+    Input strs;
+    Input records;
+    Input chars;
+    Input charRecords;
+    Input whitespaces;
+    final Sink out = new Sink();
+
+    @Setup
+    public void setup() {
+        boolean success = path.equals("success");
+        bytes = input(success ? "a" : "b");
+        strs = input(success ? "hello" : "help!");
+        records = input(success ? "key=value,other=0123456789abcde;" : "key=value,other=0123456789abcde,");
+        chars = chars(success ? "a" : "b");
+        charRecords = chars(success ? "0123456;" : "01234567");
+        whitespaces = chars(success ? "       x" : "xxxxxxxx");
+    }
+
+    private ByteBuffer allocate() {
+        return buffer.equals("heap") ? ByteBuffer.allocate(size) : ByteBuffer.allocateDirect(size);
+    }
+
+    private Input input(String unit) {
+        var data = allocate();
+        for (int i = 0; i < size; i++) data.put(i, (byte) unit.charAt(i % unit.length()));
+        return Input.of(data);
+    }
+
+    private Input chars(String unit) {
+        var data = allocate();
+        for (int i = 0; i + 2 <= size; i += 2) data.putChar(i, unit.charAt(i / 2 % unit.length()));
+        return Input.of(data);
+    }
+
+    @Benchmark
+    public long b(Throughput throughput) {
+        return throughput.parseAll(b, bytes, 1, out);
+    }
+
+    @Benchmark
+    public long ch(Throughput throughput) {
+        return throughput.parseAll(ch, chars, 2, out);
+    }
+
+    @Benchmark
+    public long str(Throughput throughput) {
+        return throughput.parseAll(str, strs, 5, out);
+    }
+
+    @Benchmark
+    public long untilByte(Throughput throughput) {
+        return throughput.parseAll(untilByte, records, 1, out);
+    }
+
+    @Benchmark
+    public long untilBytePredicate(Throughput throughput) {
+        return throughput.parseAll(untilBytePredicate, records, 1, out);
+    }
+
+    @Benchmark
+    public long untilChar(Throughput throughput) {
+        return throughput.parseAll(untilChar, charRecords, 2, out);
+    }
+
+    @Benchmark
+    public long skipWhitespaces(Throughput throughput) {
+        return throughput.parseAll(skipWhitespaces, whitespaces, 2, out);
+    }
+}
@@ -0,0 +1,89 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * scalar vs vectorized scanning loops of {@link Scan} over a delimiter-free run
+ * <p>
+ * the input ends with the delimiter, so every invocation scans {@code size} bytes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+
+    @Param({"64", "4096", "1048576"})
+    int size;
+
+    @Param({"heap", "direct"})
+    String buffer;
+
+    Input bytes;
+    Input chars;
+    ByteClass newline = ByteClass.of("\n");
+    ByteClass delimiters = ByteClass.of("\n\r\t,");
+
+    @Setup
+    public void setup() {
+        var data = buffer.equals("heap") ? ByteBuffer.allocate(size) : ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size - 1; i++) data.put(i, (byte) ('a' + i % 26));
+        data.put(size - 1, (byte) '\n');
+        bytes = Input.of(data);
+
+        var ws = buffer.equals("heap") ? ByteBuffer.allocate(size) : ByteBuffer.allocateDirect(size);
+        for (int i = 0; i + 1 < size - 2; i += 2) ws.putChar(i, ' ');
+        ws.putChar(size - 2, 'x');
+        chars = Input.of(ws);
+    }
+
+    @Benchmark
+    public long untilByte_scalar() {
+        return Scan.until_scalar(bytes, 0, bytes.limit(), newline);
+    }
+
+    @Benchmark
+    public long untilByte_vector() {
+        return Scan.until_scalar(
+                bytes, VectorScan.until(bytes.segment(), 0, bytes.limit(), newline.ranges()), bytes.limit(), newline);
+    }
+
+    @Benchmark
+    public long untilByteClass_scalar() {
+        return Scan.until_scalar(bytes, 0, bytes.limit(), delimiters);
+    }
+
+    @Benchmark
+    public long untilByteClass_vector() {
+        return Scan.until_scalar(
+                bytes,
+                VectorScan.until(bytes.segment(), 0, bytes.limit(), delimiters.ranges()),
+                bytes.limit(),
+                delimiters);
+    }
+
+    @Benchmark
+    public long skipWhitespaces_scalar() {
+        return Scan.skipWhitespaces_scalar(chars, 0, chars.limit());
+    }
+
+    @Benchmark
+    public long skipWhitespaces_vector() {
+        return Scan.skipWhitespaces_scalar(
+                chars, VectorScan.skipWhitespaces(chars.segment(), 0, chars.limit(), chars.order()), chars.limit());
+    }
+}
@@ -0,0 +1,40 @@
+package lost.parser.combinator;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * input consumed per second, reported by JMH next to the ops/s of a benchmark as {@code megabytes} (MB/s)
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+    }
+
+    /**
+     * parse the whole input with {@code parser} from every position it stops at, skipping {@code step} bytes where it
+     * fails or matches empty, so success and failure paths both cover the input. {@code out} is reset first, so memo
+     * entries of the previous invocation aren't hits
+     *
+     * @return the end, for the blackhole
+     */
+    long parseAll(Parser<?> parser, Input in, int step, Sink out) {
+        out.reset();
+        long pos = 0, limit = in.limit();
+        while (pos < limit) {
+            long end = parser.parseAt(in, pos, out);
+            pos = end <= pos ? pos + step : end;
+        }
+        megabytes += limit / 1e6;
+        return pos;
+    }
+}
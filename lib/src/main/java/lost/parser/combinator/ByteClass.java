@@ -0,0 +1,171 @@
+package lost.parser.combinator;
+
+import java.util.Arrays;
+
+/**
+ * immutable set of bytes, stored as a precomputed 256-bit table
+ * <p>
+ * like regex `[...]`, membership is a single table lookup
+ */
+public final class ByteClass {
+
+    private final long[] bits;
+
+    private int[] ranges;
+
+    private ByteClass(long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * empty class
+     */
+    public static ByteClass none() {
+        return new ByteClass(new long[4]);
+    }
+
+    /**
+     * class of all bytes
+     */
+    public static ByteClass any() {
+        return none().negate();
+    }
+
+    /**
+     * class of the given bytes
+     */
+    public static ByteClass of(byte... bytes) {
+        var bits = new long[4];
+        for (byte b : bytes) set(bits, b & 0xFF);
+        return new ByteClass(bits);
+    }
+
+    /**
+     * class of the bytes of an ASCII string, like regex `[abc]`
+     */
+    public static ByteClass of(String chars) {
+        var bits = new long[4];
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c > 0xFF) throw new IllegalArgumentException("not a byte: " + c);
+            set(bits, c);
+        }
+        return new ByteClass(bits);
+    }
+
+    /**
+     * class of an inclusive range of unsigned byte values, like regex `[a-z]`
+     *
+     * @param from first unsigned byte value
+     * @param to   last unsigned byte value
+     */
+    public static ByteClass range(int from, int to) {
+        if (!(from >= 0 && to <= 0xFF && from <= to))
+            throw new IllegalArgumentException("requires 0 <= `from` <= `to` <= 255");
+        var bits = new long[4];
+        for (int b = from; b <= to; b++) set(bits, b);
+        return new ByteClass(bits);
+    }
+
+    private static void set(long[] bits, int b) {
+        bits[b >>> 6] |= 1L << b;
+    }
+
+    public boolean contains(byte b) {
+        return contains(b & 0xFF);
+    }
+
+    /**
+     * @param b unsigned byte value
+     */
+    public boolean contains(int b) {
+        return (bits[(b >>> 6) & 3] & (1L << b)) != 0;
+    }
+
+    public ByteClass union(ByteClass other) {
+        var bits = new long[4];
+        for (int i = 0; i < 4; i++) bits[i] = this.bits[i] | other.bits[i];
+        return new ByteClass(bits);
+    }
+
+    public ByteClass intersect(ByteClass other) {
+        var bits = new long[4];
+        for (int i = 0; i < 4; i++) bits[i] = this.bits[i] & other.bits[i];
+        return new ByteClass(bits);
+    }
+
+    /**
+     * complement, like regex `[^...]`
+     */
+    public ByteClass negate() {
+        var bits = new long[4];
+        for (int i = 0; i < 4; i++) bits[i] = ~this.bits[i];
+        return new ByteClass(bits);
+    }
+
+    /**
+     * number of bytes in the class
+     */
+    public int cardinality() {
+        int n = 0;
+        for (long word : bits) n += Long.bitCount(word);
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return cardinality() == 0;
+    }
+
+    /**
+     * inclusive ranges of unsigned byte values as {@code (from, to)} pairs, in ascending order
+     */
+    int[] ranges() {
+        var ranges = this.ranges;
+        if (ranges != null) return ranges;
+        ranges = new int[0];
+        int b = 0;
+        while (b < 256) {
+            if (!contains(b)) {
+                b++;
+                continue;
+            }
+            int from = b;
+            while (b + 1 < 256 && contains(b + 1)) b++;
+            ranges = Arrays.copyOf(ranges, ranges.length + 2);
+            ranges[ranges.length - 2] = from;
+            ranges[ranges.length - 1] = b;
+            b++;
+        }
+        return this.ranges = ranges;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ByteClass other && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("[");
+        var ranges = ranges();
+        for (int i = 0; i < ranges.length; i += 2) {
+            int from = ranges[i], to = ranges[i + 1];
+            append(sb, from);
+            if (to > from) {
+                if (to > from + 1) sb.append('-');
+                append(sb, to);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void append(StringBuilder sb, int b) {
+        if (b > 0x20 && b < 0x7F && b != '\\' && b != '-' && b != '[' && b != ']' && b != '^') sb.append((char) b);
+        else sb.append(String.format("\\x%02X", b));
+    }
+}
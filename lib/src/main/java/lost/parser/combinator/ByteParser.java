@@ -0,0 +1,108 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * byte parser without boxing
+ * <p>
+ * {@link #parseAt} writes the matched byte into {@link Sink#longValue()}
+ */
+@FunctionalInterface
+public interface ByteParser extends ParseAt {
+
+    /**
+     * see {@link Parser#parseAt}
+     */
+    @Override
+    long parseAt(Input in, long pos, Sink out);
+
+    default byte parse(ByteBuffer input) {
+        return (byte) Parsers.top_level(this, input).longValue;
+    }
+
+    /**
+     * generic parser of the boxed byte
+     */
+    default Parser<Byte> boxed() {
+        return Parsers.boxedByte(ByteParser.this);
+    }
+
+    default ByteParser map(IntUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = (byte) mapper.applyAsInt((byte) out.longValue);
+            return end;
+        };
+    }
+
+    default IntParser mapToInt(IntUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = mapper.applyAsInt((byte) out.longValue);
+            return end;
+        };
+    }
+
+    default <R> Parser<R> mapToObj(IntFunction<R> mapper) {
+        return Parsers.mapByte(ByteParser.this, mapper);
+    }
+
+    /**
+     * and parser
+     */
+    default IntParser and(ByteParser other, IntBinaryOperator merge) {
+        return (in, pos, out) -> {
+            var a_end = parseAt(in, pos, out);
+            if (a_end < 0) return a_end;
+            var a_value = (byte) out.longValue;
+            var b_end = other.parseAt(in, a_end, out);
+            if (b_end < 0) return b_end;
+            out.longValue = merge.applyAsInt(a_value, (byte) out.longValue);
+            return b_end;
+        };
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    default Parser<byte[]> repeat(int min, int max) {
+        return Parsers.repeatBytes(ByteParser.this, min, max);
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min,}`
+     *
+     * @param min min times
+     */
+    default Parser<byte[]> repeat(int min) {
+        return Parsers.repeatBytes(ByteParser.this, min, Integer.MAX_VALUE);
+    }
+
+    /**
+     * one or many parser
+     * <p>
+     * like regex `+`
+     */
+    default Parser<byte[]> oneOrMany() {
+        return repeat(1);
+    }
+
+    /**
+     * zero or many parser
+     * <p>
+     * like regex `*`
+     */
+    default Parser<byte[]> zeroOrMany() {
+        return Parsers.zeroOrManyBytes(ByteParser.this);
+    }
+}
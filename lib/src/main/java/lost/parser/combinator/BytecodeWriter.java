@@ -0,0 +1,366 @@
+package lost.parser.combinator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * minimal class file writer used by {@link Compiler}
+ * <p>
+ * emits class file version 49, which is verified by type inference, so no stack map frames are needed
+ */
+final class BytecodeWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    // ---------------- constant pool ----------------
+
+    private int entry(String key, int slots, IoWriter writer) {
+        var index = entries.get(key);
+        if (index != null) return index;
+        try {
+            writer.write(poolOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int i = poolCount;
+        poolCount += slots;
+        if (poolCount > 0xFFFF) throw new TooLarge("constant pool");
+        entries.put(key, i);
+        return i;
+    }
+
+    int utf8(String s) {
+        return entry("U" + s, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(s);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int integer(int value) {
+        return entry("I" + value, 1, out -> {
+            out.writeByte(3);
+            out.writeInt(value);
+        });
+    }
+
+    int longConst(long value) {
+        return entry("J" + value, 2, out -> {
+            out.writeByte(5);
+            out.writeLong(value);
+        });
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int n = utf8(name), d = utf8(descriptor);
+        return entry("N" + name + ":" + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(n);
+            out.writeShort(d);
+        });
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int c = classRef(owner), nt = nameAndType(name, descriptor);
+        return entry(tag + owner + "." + name + ":" + descriptor, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(c);
+            out.writeShort(nt);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    // ---------------- members ----------------
+
+    void field(int access, String name, String descriptor) {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    void method(int access, String name, String descriptor, Code code) {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        var body = code.toByteArray();
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + body.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(int access, String name, String superName, String... interfaces) {
+        int thisClass = classRef(name), superClass = classRef(superName);
+        var interfaceRefs = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) interfaceRefs[i] = classRef(interfaces[i]);
+
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            poolOut.flush();
+            pool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaceRefs.length);
+            for (int ref : interfaceRefs) out.writeShort(ref);
+            out.writeShort(fields.size());
+            for (var field : fields) out.write(field);
+            out.writeShort(methods.size());
+            for (var method : methods) out.write(method);
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface IoWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * the generated class would exceed a class file limit
+     */
+    static final class TooLarge extends RuntimeException {
+        TooLarge(String what) {
+            super(what + " too large", null, false, false);
+        }
+    }
+
+    /**
+     * method body with forward-patched labels
+     * <p>
+     * branches use 16-bit offsets, so a body is limited to 32767 bytes
+     */
+    static final class Code {
+
+        static final int ACONST_NULL = 0x01;
+        static final int LCONST_0 = 0x09;
+        static final int LCONST_1 = 0x0A;
+        static final int BIPUSH = 0x10;
+        static final int SIPUSH = 0x11;
+        static final int LDC_W = 0x13;
+        static final int LDC2_W = 0x14;
+        static final int ILOAD = 0x15;
+        static final int LLOAD = 0x16;
+        static final int ALOAD = 0x19;
+        static final int AALOAD = 0x32;
+        static final int ISTORE = 0x36;
+        static final int POP = 0x57;
+        static final int LSTORE = 0x37;
+        static final int ASTORE = 0x3A;
+        static final int DUP = 0x59;
+        static final int LADD = 0x61;
+        static final int LSUB = 0x65;
+        static final int IAND = 0x7E;
+        static final int IINC = 0x84;
+        static final int I2L = 0x85;
+        static final int L2I = 0x88;
+        static final int I2B = 0x91;
+        static final int LCMP = 0x94;
+        static final int IFEQ = 0x99;
+        static final int IFNE = 0x9A;
+        static final int IFLT = 0x9B;
+        static final int IFGE = 0x9C;
+        static final int IF_ICMPEQ = 0x9F;
+        static final int IF_ICMPNE = 0xA0;
+        static final int IF_ICMPLT = 0xA1;
+        static final int IF_ICMPGE = 0xA2;
+        static final int GOTO = 0xA7;
+        static final int LRETURN = 0xAD;
+        static final int RETURN = 0xB1;
+        static final int GETFIELD = 0xB4;
+        static final int PUTFIELD = 0xB5;
+        static final int INVOKEVIRTUAL = 0xB6;
+        static final int INVOKESPECIAL = 0xB7;
+        static final int INVOKESTATIC = 0xB8;
+        static final int INVOKEINTERFACE = 0xB9;
+        static final int NEW = 0xBB;
+        static final int CHECKCAST = 0xC0;
+        static final int WIDE = 0xC4;
+
+        private byte[] code = new byte[256];
+        private int length;
+
+        int maxStack = 16;
+        int maxLocals;
+
+        Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        static final class Label {
+            private int offset = -1;
+            private int[] fixups = new int[0];
+        }
+
+        private void put(int b) {
+            if (length == code.length) code = Arrays.copyOf(code, length << 1);
+            code[length++] = (byte) b;
+        }
+
+        private void put2(int v) {
+            put(v >>> 8);
+            put(v);
+        }
+
+        void op(int opcode) {
+            put(opcode);
+        }
+
+        /**
+         * instruction with a constant pool index, a type or a member
+         */
+        void op(int opcode, int index) {
+            put(opcode);
+            put2(index);
+        }
+
+        void invokeinterface(int index, int argSlots) {
+            put(INVOKEINTERFACE);
+            put2(index);
+            put(argSlots + 1);
+            put(0);
+        }
+
+        /**
+         * slots for one local, 2 for long
+         */
+        int local(int slots) {
+            int index = maxLocals;
+            maxLocals += slots;
+            if (maxLocals > 0xFFFF) throw new TooLarge("locals");
+            return index;
+        }
+
+        void var(int opcode, int index) {
+            if (index > 0xFF) {
+                put(WIDE);
+                put(opcode);
+                put2(index);
+            } else {
+                put(opcode);
+                put(index);
+            }
+        }
+
+        void iinc(int index, int delta) {
+            if (index > 0xFF) {
+                put(WIDE);
+                put(IINC);
+                put2(index);
+                put2(delta);
+            } else {
+                put(IINC);
+                put(index);
+                put(delta);
+            }
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) put(0x03 + value);
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                put(BIPUSH);
+                put(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                put(SIPUSH);
+                put2(value);
+            } else throw new IllegalArgumentException("use ldc for " + value);
+        }
+
+        Label label() {
+            return new Label();
+        }
+
+        void mark(Label label) {
+            label.offset = length;
+            for (int at : label.fixups) patch(at, label.offset);
+            label.fixups = null;
+        }
+
+        void jump(int opcode, Label target) {
+            int at = length;
+            put(opcode);
+            if (target.offset >= 0) {
+                put2(target.offset - at);
+            } else {
+                put2(0);
+                target.fixups = Arrays.copyOf(target.fixups, target.fixups.length + 1);
+                target.fixups[target.fixups.length - 1] = at;
+            }
+        }
+
+        private void patch(int at, int target) {
+            int offset = target - at;
+            code[at + 1] = (byte) (offset >>> 8);
+            code[at + 2] = (byte) offset;
+        }
+
+        byte[] toByteArray() {
+            if (length > Short.MAX_VALUE) throw new TooLarge("method");
+            return Arrays.copyOf(code, length);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * char parser without boxing
+ * <p>
+ * {@link #parseAt} writes the matched char into {@link Sink#longValue()}
+ */
+@FunctionalInterface
+public interface CharParser extends ParseAt {
+
+    /**
+     * see {@link Parser#parseAt}
+     */
+    @Override
+    long parseAt(Input in, long pos, Sink out);
+
+    default char parse(ByteBuffer input) {
+        return (char) Parsers.top_level(this, input).longValue;
+    }
+
+    /**
+     * generic parser of the boxed char
+     */
+    default Parser<Character> boxed() {
+        return Parsers.boxedChar(CharParser.this);
+    }
+
+    default CharParser map(IntUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = (char) mapper.applyAsInt((char) out.longValue);
+            return end;
+        };
+    }
+
+    default IntParser mapToInt(IntUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = mapper.applyAsInt((char) out.longValue);
+            return end;
+        };
+    }
+
+    default <R> Parser<R> mapToObj(IntFunction<R> mapper) {
+        return Parsers.mapChar(CharParser.this, mapper);
+    }
+
+    /**
+     * and parser
+     */
+    default IntParser and(CharParser other, IntBinaryOperator merge) {
+        return (in, pos, out) -> {
+            var a_end = parseAt(in, pos, out);
+            if (a_end < 0) return a_end;
+            var a_value = (char) out.longValue;
+            var b_end = other.parseAt(in, a_end, out);
+            if (b_end < 0) return b_end;
+            out.longValue = merge.applyAsInt(a_value, (char) out.longValue);
+            return b_end;
+        };
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    default Parser<char[]> repeat(int min, int max) {
+        return Parsers.repeatChars(CharParser.this, min, max);
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min,}`
+     *
+     * @param min min times
+     */
+    default Parser<char[]> repeat(int min) {
+        return Parsers.repeatChars(CharParser.this, min, Integer.MAX_VALUE);
+    }
+
+    /**
+     * one or many parser
+     * <p>
+     * like regex `+`
+     */
+    default Parser<char[]> oneOrMany() {
+        return repeat(1);
+    }
+
+    /**
+     * zero or many parser
+     * <p>
+     * like regex `*`
+     */
+    default Parser<char[]> zeroOrMany() {
+        return Parsers.zeroOrManyChars(CharParser.this);
+    }
+}
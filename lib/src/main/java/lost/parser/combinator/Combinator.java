@@ -0,0 +1,21 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * built-in parser on the position protocol
+ * <p>
+ * failures are reported by returning a negative position from {@link #parseAt},
+ * {@link #parse} is a thin wrapper that only materializes {@link ParseError} at the top level
+ */
+@FunctionalInterface
+interface Combinator<T> extends Parser<T>, ParseAt {
+
+    @Override
+    long parseAt(Input in, long pos, Sink out);
+
+    @Override
+    default ParseResult<T> parse(ByteBuffer input) {
+        return new ParseResult<>(Parsers.top_level(this, input).value(), input);
+    }
+}
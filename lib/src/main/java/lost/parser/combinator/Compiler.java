@@ -0,0 +1,715 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.BytecodeWriter.Code.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import lost.parser.combinator.BytecodeWriter.Code;
+
+/**
+ * compiles a grammar built from the built-in combinators into one hidden class, see {@link Parsers#compile}
+ * <p>
+ * the generated {@code parseAt} is straight-line code: literals are inlined byte checks, {@code or} / {@code opt}
+ * save and restore one position local (recovering from {@link Parser#FAIL} only, not before the cut), {@code repeat}
+ * is a loop, opaque parsers are called through a trusted final field. nodes keep the exact semantics of their
+ * {@code parse_*} functions in {@link Parsers}
+ */
+final class Compiler {
+
+    private static final String NAME = "lost/parser/combinator/CompiledParser";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String INPUT = "lost/parser/combinator/Input";
+    private static final String SINK = "lost/parser/combinator/Sink";
+    private static final String OR = "lost/parser/combinator/Parsers$Or";
+    private static final String SPAN = "Llost/parser/combinator/Span;";
+    private static final String PARSE_AT = "(L" + INPUT + ";JL" + SINK + ";)J";
+
+    // parseAt locals
+    private static final int THIS = 0;
+    private static final int IN = 1;
+    private static final int POS = 2;
+    private static final int OUT = 4;
+
+    private final BytecodeWriter cw = new BytecodeWriter();
+    private final Code code = new Code(5);
+    private final int limit = code.local(2);
+    private final int failure = code.local(2);
+
+    private final List<Object> constants = new ArrayList<>();
+    private final List<String> constantTypes = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new IdentityHashMap<>();
+    private final Map<Code.Label, Code.Label> failStubs = new IdentityHashMap<>();
+    private final Map<Code.Label, Code.Label> errorStubs = new IdentityHashMap<>();
+    private final List<Expect> expectStubs = new ArrayList<>();
+
+    /**
+     * stub at {@code label} noting {@code item} as expected at {@code pos}, then failing to {@code fail}
+     */
+    private record Expect(Code.Label label, Object item, Code.Label fail) {}
+
+    private Compiler() {}
+
+    /**
+     * @return the compiled parser, or {@code parser} itself if it is opaque or too large to compile
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Parser<T> compile(Parser<T> parser) {
+        if (!(parser instanceof Combinator<T>)) return parser;
+        try {
+            var compiler = new Compiler();
+            var bytes = compiler.generate(parser);
+            var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            var constructor =
+                    lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Object[].class));
+            return (Parser<T>) constructor.invoke(compiler.constants.toArray());
+        } catch (BytecodeWriter.TooLarge e) {
+            return parser;
+        } catch (Throwable e) {
+            throw new IllegalStateException("compile parser error", e);
+        }
+    }
+
+    private byte[] generate(Parser<?> parser) {
+        loadLimit();
+        ldc(Parser.FAIL);
+        code.var(LSTORE, failure);
+
+        var fail = code.label();
+        gen(parser, fail);
+        code.var(LLOAD, POS);
+        code.op(LRETURN);
+        code.mark(fail);
+        code.var(LLOAD, failure);
+        code.op(LRETURN);
+
+        for (var stub : expectStubs) {
+            code.mark(stub.label());
+            code.var(ALOAD, OUT);
+            code.var(LLOAD, POS);
+            loadConstant(stub.item(), OBJECT);
+            code.op(INVOKEVIRTUAL, cw.methodRef(SINK, "expected", "(JL" + OBJECT + ";)V"));
+            code.jump(GOTO, failing(stub.fail()));
+        }
+        for (var stub : failStubs.entrySet()) {
+            code.mark(stub.getValue());
+            ldc(Parser.FAIL);
+            code.var(LSTORE, failure);
+            code.jump(GOTO, stub.getKey());
+        }
+        for (var stub : errorStubs.entrySet()) {
+            code.mark(stub.getValue());
+            ldc(Parser.ERROR);
+            code.var(LSTORE, failure);
+            code.jump(GOTO, stub.getKey());
+        }
+
+        cw.method(BytecodeWriter.ACC_PUBLIC, "parseAt", PARSE_AT, code);
+        cw.method(BytecodeWriter.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", constructor());
+        for (int i = 0; i < constants.size(); i++) {
+            cw.field(BytecodeWriter.ACC_PRIVATE | BytecodeWriter.ACC_FINAL, "k" + i, descriptor(constantTypes.get(i)));
+        }
+        return cw.toByteArray(
+                BytecodeWriter.ACC_FINAL | BytecodeWriter.ACC_SUPER,
+                NAME,
+                OBJECT,
+                "lost/parser/combinator/Combinator");
+    }
+
+    private Code constructor() {
+        var init = new Code(2);
+        init.var(ALOAD, 0);
+        init.op(INVOKESPECIAL, cw.methodRef(OBJECT, "<init>", "()V"));
+        for (int i = 0; i < constants.size(); i++) {
+            var type = constantTypes.get(i);
+            init.var(ALOAD, 0);
+            init.var(ALOAD, 1);
+            ldc(init, i);
+            init.op(AALOAD);
+            if (!type.equals(OBJECT)) init.op(CHECKCAST, cw.classRef(type));
+            init.op(PUTFIELD, cw.fieldRef(NAME, "k" + i, descriptor(type)));
+        }
+        init.op(RETURN);
+        return init;
+    }
+
+    private static String descriptor(String internalName) {
+        return "L" + internalName + ";";
+    }
+
+    // ---------------- nodes ----------------
+
+    /**
+     * on success {@code pos} is advanced and the value written to the sink,
+     * on failure the failure code is stored and control jumps to {@code fail}, {@code pos} is then undefined
+     */
+    private void gen(Parser<?> node, Code.Label fail) {
+        switch (node) {
+            case Parsers.B b -> {
+                var failed = expecting(b.value(), fail);
+                checkRemaining(1, failed);
+                getByte(0);
+                code.iconst(b.expect());
+                code.jump(IF_ICMPNE, failed);
+                setValue(b.value());
+                advance(1);
+            }
+            case Parsers.Ch c -> {
+                var failed = expecting(c.value(), fail);
+                checkRemaining(2, failed);
+                code.var(ALOAD, IN);
+                code.var(LLOAD, POS);
+                code.op(INVOKEVIRTUAL, cw.methodRef(INPUT, "getChar", "(J)C"));
+                ldc(code, c.expect());
+                code.jump(IF_ICMPNE, failed);
+                setValue(c.value());
+                advance(2);
+            }
+            case Parsers.Str s -> {
+                var expect = s.expect();
+                var failed = expecting(s.str(), fail);
+                checkRemaining(expect.length, failed);
+                for (int i = 0; i < expect.length; i++) {
+                    getByte(i);
+                    code.iconst(expect[i]);
+                    code.jump(IF_ICMPNE, failed);
+                }
+                setValue(s.str());
+                advance(expect.length);
+            }
+            case Parsers.End e -> {
+                var failed = expecting(e, fail);
+                code.var(LLOAD, POS);
+                code.var(LLOAD, limit);
+                code.op(LCMP);
+                code.jump(IFLT, failed);
+                // push mode may still bring more bytes
+                code.var(ALOAD, IN);
+                code.var(LLOAD, POS);
+                code.op(LCONST_1);
+                code.op(INVOKEVIRTUAL, cw.methodRef(INPUT, "has", "(JJ)Z"));
+                code.jump(IFNE, failed);
+                setValue(null);
+            }
+            case Parsers.TakeWhile t -> {
+                int end = code.local(2);
+                scanUntil(t.stop());
+                code.var(LSTORE, end);
+                setRegion(POS, end, "slice", "Ljava/nio/ByteBuffer;");
+                code.var(LLOAD, end);
+                code.var(LSTORE, POS);
+            }
+            case Parsers.TakeWhileSpan t -> {
+                int end = code.local(2);
+                scanUntil(t.stop());
+                code.var(LSTORE, end);
+                setRegion(POS, end, "span", SPAN);
+                code.var(LLOAD, end);
+                code.var(LSTORE, POS);
+            }
+            case Parsers.Capture c -> {
+                int start = code.local(2);
+                code.var(LLOAD, POS);
+                code.var(LSTORE, start);
+                gen(c.parser(), fail);
+                setRegion(start, POS, "span", SPAN);
+            }
+            case Parsers.SkipWhile s -> {
+                scanUntil(s.stop());
+                code.var(LSTORE, POS);
+                setValue(null);
+            }
+            case Parsers.Opt<?> o -> genOpt(o.parser(), fail);
+            case Parsers.Repeat<?> r -> genRepeat(r.parser(), r.min(), r.max(), fail);
+            case Parsers.ZeroOrMany<?> z -> genRepeat(z.parser(), 0, Integer.MAX_VALUE, fail);
+            case Parsers.SkipMany s -> genSkip(s.parser(), s.min(), fail);
+            case Parsers.Or<?> or -> genOr(or, fail);
+            case Parsers.And<?, ?, ?> and -> genAnd(and, fail);
+            case Parsers.Boxed<?> b -> {
+                if (b.type() != Parsers.Primitive.BYTE) {
+                    opaque(node, "lost/parser/combinator/Parser", fail);
+                    return;
+                }
+                genByte((ByteParser) b.parser(), fail);
+                code.var(ALOAD, OUT);
+                loadByteValue();
+                code.op(INVOKESTATIC, cw.methodRef("java/lang/Byte", "valueOf", "(B)Ljava/lang/Byte;"));
+                code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+            }
+            case Parsers.MapInt<?> m -> {
+                if (m.type() != Parsers.Primitive.BYTE) {
+                    opaque(node, "lost/parser/combinator/Parser", fail);
+                    return;
+                }
+                genByte((ByteParser) m.parser(), fail);
+                code.var(ALOAD, OUT);
+                loadConstant(m.mapper(), "java/util/function/IntFunction");
+                loadByteValue();
+                code.invokeinterface(
+                        cw.interfaceMethodRef("java/util/function/IntFunction", "apply", "(I)Ljava/lang/Object;"),
+                        1);
+                code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+            }
+            default -> opaque(node, "lost/parser/combinator/Parser", fail);
+        }
+    }
+
+    /**
+     * like {@link #gen} for byte parsers, which write {@link Sink#longValue}
+     */
+    private void genByte(ByteParser node, Code.Label fail) {
+        switch (node) {
+            case Parsers.ByteOf b -> {
+                var failed = expecting(b, fail);
+                checkRemaining(1, failed);
+                getByte(0);
+                code.iconst(b.expect());
+                code.jump(IF_ICMPNE, failed);
+                code.var(ALOAD, OUT);
+                ldc(b.expect());
+                code.op(PUTFIELD, cw.fieldRef(SINK, "longValue", "J"));
+                advance(1);
+            }
+            case Parsers.OneOf o -> {
+                var failed = expecting(o.accept(), fail);
+                checkRemaining(1, failed);
+                int b = code.local(1);
+                getByte(0);
+                code.var(ISTORE, b);
+                loadConstant(o.accept(), "lost/parser/combinator/ByteClass");
+                code.var(ILOAD, b);
+                code.op(INVOKEVIRTUAL, cw.methodRef("lost/parser/combinator/ByteClass", "contains", "(B)Z"));
+                code.jump(IFEQ, failed);
+                code.var(ALOAD, OUT);
+                code.var(ILOAD, b);
+                code.op(I2L);
+                code.op(PUTFIELD, cw.fieldRef(SINK, "longValue", "J"));
+                advance(1);
+            }
+            default -> opaque(node, "lost/parser/combinator/ByteParser", fail);
+        }
+    }
+
+    private void genOpt(Parser<?> parser, Code.Label fail) {
+        int save = code.local(2);
+        code.var(LLOAD, POS);
+        code.var(LSTORE, save);
+        var none = code.label();
+        var done = code.label();
+
+        gen(parser, none);
+        code.var(ALOAD, OUT);
+        code.var(ALOAD, OUT);
+        code.op(GETFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.op(INVOKESTATIC, cw.methodRef("java/util/Optional", "of", "(Ljava/lang/Object;)Ljava/util/Optional;"));
+        code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.jump(GOTO, done);
+
+        code.mark(none);
+        recover(save, fail);
+        code.var(LLOAD, save);
+        code.var(LSTORE, POS);
+        code.var(ALOAD, OUT);
+        code.op(INVOKESTATIC, cw.methodRef("java/util/Optional", "empty", "()Ljava/util/Optional;"));
+        code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.mark(done);
+    }
+
+    /**
+     * the list is allocated on the first match and no match yields {@code List.of()}, like the interpreted loop
+     */
+    private void genRepeat(Parser<?> parser, int min, int max, Code.Label fail) {
+        int list = code.local(1), count = code.local(1), save = code.local(2);
+        code.op(ACONST_NULL);
+        code.var(ASTORE, list);
+        code.iconst(0);
+        code.var(ISTORE, count);
+
+        var loop = code.label();
+        var exit = code.label();
+        var after = code.label();
+        code.mark(loop);
+        code.var(LLOAD, POS);
+        code.var(LSTORE, save);
+        gen(parser, exit);
+        var allocated = code.label();
+        code.var(ILOAD, count);
+        code.jump(IFNE, allocated);
+        code.op(NEW, cw.classRef("java/util/ArrayList"));
+        code.op(DUP);
+        ldc(code, Math.max(min, 8));
+        code.op(INVOKESPECIAL, cw.methodRef("java/util/ArrayList", "<init>", "(I)V"));
+        code.var(ASTORE, list);
+        code.mark(allocated);
+        code.var(ALOAD, list);
+        code.var(ALOAD, OUT);
+        code.op(GETFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.op(INVOKEVIRTUAL, cw.methodRef("java/util/ArrayList", "add", "(Ljava/lang/Object;)Z"));
+        code.op(POP);
+        code.iinc(count, 1);
+        // more empty matches would be the same, only as many as required, like the interpreted loop
+        var more = code.label();
+        code.var(LLOAD, POS);
+        code.var(LLOAD, save);
+        code.op(LCMP);
+        code.jump(IFNE, more);
+        code.var(ILOAD, count);
+        ldc(code, min);
+        code.jump(IF_ICMPGE, after);
+        code.mark(more);
+        code.var(ILOAD, count);
+        ldc(code, max);
+        code.jump(IF_ICMPLT, loop);
+        code.jump(GOTO, after);
+        code.mark(exit);
+        recover(save, fail);
+        code.var(LLOAD, save);
+        code.var(LSTORE, POS);
+        code.mark(after);
+
+        if (min > 0) {
+            code.var(ILOAD, count);
+            ldc(code, min);
+            code.jump(IF_ICMPLT, failing(fail));
+        }
+
+        var some = code.label();
+        var set = code.label();
+        code.var(ILOAD, count);
+        code.jump(IFNE, some);
+        // the shared empty list, version 49 classes can't invoke static interface methods
+        setValue(List.of());
+        code.jump(GOTO, set);
+        code.mark(some);
+        code.var(ALOAD, OUT);
+        code.var(ALOAD, list);
+        code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.mark(set);
+    }
+
+    /**
+     * like {@link #genRepeat} without a list, stopping after an empty match like {@link Parsers#skipMany(Parser)}
+     */
+    private void genSkip(Parser<?> parser, int min, Code.Label fail) {
+        int count = code.local(1), save = code.local(2);
+        code.iconst(0);
+        code.var(ISTORE, count);
+
+        var loop = code.label();
+        var exit = code.label();
+        var after = code.label();
+        code.mark(loop);
+        code.var(LLOAD, POS);
+        code.var(LSTORE, save);
+        gen(parser, exit);
+        code.iinc(count, 1);
+        code.var(LLOAD, POS);
+        code.var(LLOAD, save);
+        code.op(LCMP);
+        code.jump(IFNE, loop);
+        code.jump(GOTO, after);
+        code.mark(exit);
+        recover(save, fail);
+        code.var(LLOAD, save);
+        code.var(LSTORE, POS);
+        code.mark(after);
+
+        if (min > 0) {
+            code.var(ILOAD, count);
+            ldc(code, min);
+            code.jump(IF_ICMPLT, failing(fail));
+        }
+
+        code.var(ALOAD, OUT);
+        code.var(ILOAD, count);
+        code.op(I2L);
+        code.op(PUTFIELD, cw.fieldRef(SINK, "longValue", "J"));
+        setValue(null);
+    }
+
+    /**
+     * tries the alternatives of the {@link Parsers.Or#dispatch()} row of the next byte, in order like
+     * {@code parse_or}, and notes the skipped ones as expected when all fail
+     */
+    private void genOr(Parsers.Or<?> or, Code.Label fail) {
+        var parsers = or.parsers();
+        int save = code.local(2), next = code.local(1), tried = code.local(1);
+        code.var(LLOAD, POS);
+        code.var(LSTORE, save);
+        var end = code.label();
+        var known = code.label();
+        checkRemaining(1, end);
+        getByte(0);
+        code.iconst(0xFF);
+        code.op(IAND);
+        code.var(ISTORE, next);
+        code.jump(GOTO, known);
+        code.mark(end);
+        ldc(code, 256);
+        code.var(ISTORE, next);
+        code.mark(known);
+        code.iconst(0);
+        code.var(ISTORE, tried);
+
+        var done = code.label();
+        for (var parser : parsers) {
+            var skip = code.label();
+            select(or.dispatch(), parser, next, skip);
+            // no alternative after the first tried resumes before the cut
+            var first = code.label();
+            code.var(ILOAD, tried);
+            code.jump(IFEQ, first);
+            code.var(LLOAD, save);
+            code.var(ALOAD, OUT);
+            code.op(GETFIELD, cw.fieldRef(SINK, "cut", "J"));
+            code.op(LCMP);
+            code.jump(IFLT, erroring(fail));
+            code.mark(first);
+            code.iconst(1);
+            code.var(ISTORE, tried);
+            code.var(LLOAD, save);
+            code.var(LSTORE, POS);
+
+            var failed = code.label();
+            gen(parser, failed);
+            code.jump(GOTO, done);
+            code.mark(failed);
+            code.var(LLOAD, failure);
+            ldc(Parser.FAIL);
+            code.op(LCMP);
+            code.jump(IFNE, fail);
+            code.mark(skip);
+        }
+        loadConstant(or, OR);
+        code.var(ILOAD, next);
+        code.var(LLOAD, save);
+        code.var(ALOAD, OUT);
+        code.op(INVOKEVIRTUAL, cw.methodRef(OR, "expectSkipped", "(IJL" + SINK + ";)V"));
+        code.jump(GOTO, failing(fail));
+        code.mark(done);
+    }
+
+    /**
+     * jumps to {@code skip} unless the {@code dispatch} row of the {@code next} byte local has {@code parser}
+     */
+    private void select(Parser<?>[][] dispatch, Parser<?> parser, int next, Code.Label skip) {
+        var bytes = new byte[256];
+        int n = 0;
+        for (int b = 0; b < 256; b++) {
+            if (Arrays.asList(dispatch[b]).contains(parser)) bytes[n++] = (byte) b;
+        }
+        boolean end = Arrays.asList(dispatch[256]).contains(parser);
+        if (n == 256 && end) return;
+
+        var selected = code.label();
+        code.var(ILOAD, next);
+        ldc(code, 256);
+        code.jump(IF_ICMPEQ, end ? selected : skip);
+        if (n < 256) {
+            loadConstant(ByteClass.of(Arrays.copyOf(bytes, n)), "lost/parser/combinator/ByteClass");
+            code.var(ILOAD, next);
+            code.op(INVOKEVIRTUAL, cw.methodRef("lost/parser/combinator/ByteClass", "contains", "(I)Z"));
+            code.jump(IFEQ, skip);
+        }
+        code.mark(selected);
+    }
+
+    private void genAnd(Parsers.And<?, ?, ?> and, Code.Label fail) {
+        gen(and.a(), fail);
+        int a = code.local(1);
+        code.var(ALOAD, OUT);
+        code.op(GETFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.var(ASTORE, a);
+
+        gen(and.b(), fail);
+        code.var(ALOAD, OUT);
+        loadConstant(and.merge(), "java/util/function/BiFunction");
+        code.var(ALOAD, a);
+        code.var(ALOAD, OUT);
+        code.op(GETFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+        code.invokeinterface(
+                cw.interfaceMethodRef(
+                        "java/util/function/BiFunction",
+                        "apply",
+                        "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;"),
+                2);
+        code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+    }
+
+    /**
+     * call a parser that is not compiled, through its {@code parseAt}
+     */
+    private void opaque(Object parser, String type, Code.Label fail) {
+        int end = code.local(2);
+        loadConstant(parser, type);
+        code.var(ALOAD, IN);
+        code.var(LLOAD, POS);
+        code.var(ALOAD, OUT);
+        code.invokeinterface(cw.interfaceMethodRef(type, "parseAt", PARSE_AT), 4);
+        code.var(LSTORE, end);
+
+        var ok = code.label();
+        code.var(LLOAD, end);
+        code.op(LCONST_0);
+        code.op(LCMP);
+        code.jump(IFGE, ok);
+        code.var(LLOAD, end);
+        code.var(LSTORE, failure);
+        code.jump(GOTO, fail);
+        code.mark(ok);
+        code.var(LLOAD, end);
+        code.var(LSTORE, POS);
+    }
+
+    // ---------------- helpers ----------------
+
+    /**
+     * label that stores {@link Parser#FAIL} and jumps to {@code fail}
+     */
+    private Code.Label failing(Code.Label fail) {
+        return failStubs.computeIfAbsent(fail, ignore -> code.label());
+    }
+
+    /**
+     * label that notes {@code item} as expected at {@code pos} like the interpreted parser, then fails to {@code fail}
+     */
+    private Code.Label expecting(Object item, Code.Label fail) {
+        var label = code.label();
+        expectStubs.add(new Expect(label, item, fail));
+        return label;
+    }
+
+    /**
+     * label that stores {@link Parser#ERROR} and jumps to {@code fail}
+     */
+    private Code.Label erroring(Code.Label fail) {
+        return errorStubs.computeIfAbsent(fail, ignore -> code.label());
+    }
+
+    /**
+     * at a recovery point: only {@link Parser#FAIL} resuming at {@code save}, not before the cut, is recovered,
+     * anything else goes on to {@code fail}
+     */
+    private void recover(int save, Code.Label fail) {
+        code.var(LLOAD, failure);
+        ldc(Parser.FAIL);
+        code.op(LCMP);
+        code.jump(IFNE, fail);
+        code.var(LLOAD, save);
+        code.var(ALOAD, OUT);
+        code.op(GETFIELD, cw.fieldRef(SINK, "cut", "J"));
+        code.op(LCMP);
+        code.jump(IFLT, erroring(fail));
+    }
+
+    /**
+     * checks {@code n} bytes against the cached limit, which only grows in push mode, then against the input, jumping
+     * to {@code failed} without them
+     */
+    private void checkRemaining(int n, Code.Label failed) {
+        var ok = code.label();
+        code.var(LLOAD, limit);
+        code.var(LLOAD, POS);
+        code.op(LSUB);
+        ldc(n);
+        code.op(LCMP);
+        code.jump(IFGE, ok);
+        code.var(ALOAD, IN);
+        code.var(LLOAD, POS);
+        ldc(n);
+        code.op(INVOKEVIRTUAL, cw.methodRef(INPUT, "has", "(JJ)Z"));
+        code.jump(IFEQ, failed);
+        loadLimit();
+        code.mark(ok);
+    }
+
+    private void loadLimit() {
+        code.var(ALOAD, IN);
+        code.op(INVOKEVIRTUAL, cw.methodRef(INPUT, "limit", "()J"));
+        code.var(LSTORE, limit);
+    }
+
+    private void getByte(int offset) {
+        code.var(ALOAD, IN);
+        code.var(LLOAD, POS);
+        if (offset != 0) {
+            ldc(offset);
+            code.op(LADD);
+        }
+        code.op(INVOKEVIRTUAL, cw.methodRef(INPUT, "get", "(J)B"));
+    }
+
+    private void loadByteValue() {
+        code.var(ALOAD, OUT);
+        code.op(GETFIELD, cw.fieldRef(SINK, "longValue", "J"));
+        code.op(L2I);
+        code.op(I2B);
+    }
+
+    /**
+     * pushes the end of a {@link Scan#until} from {@code pos} to the end of input
+     */
+    private void scanUntil(ByteClass stop) {
+        code.var(ALOAD, IN);
+        code.var(LLOAD, POS);
+        loadConstant(stop, "lost/parser/combinator/ByteClass");
+        var descriptor = "(L" + INPUT + ";JLlost/parser/combinator/ByteClass;)J";
+        code.op(INVOKESTATIC, cw.methodRef("lost/parser/combinator/Scan", "until", descriptor));
+        loadLimit();
+    }
+
+    /**
+     * sets the value to the {@link Input} region method {@code name} of {@code [from, to)}
+     */
+    private void setRegion(int from, int to, String name, String type) {
+        code.var(ALOAD, OUT);
+        code.var(ALOAD, IN);
+        code.var(LLOAD, from);
+        code.var(LLOAD, to);
+        code.var(LLOAD, from);
+        code.op(LSUB);
+        code.op(INVOKEVIRTUAL, cw.methodRef(INPUT, name, "(JJ)" + type));
+        code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+    }
+
+    private void advance(int n) {
+        code.var(LLOAD, POS);
+        ldc(n);
+        code.op(LADD);
+        code.var(LSTORE, POS);
+    }
+
+    private void setValue(Object value) {
+        code.var(ALOAD, OUT);
+        if (value == null) code.op(ACONST_NULL);
+        else loadConstant(value, OBJECT);
+        code.op(PUTFIELD, cw.fieldRef(SINK, "value", descriptor(OBJECT)));
+    }
+
+    private void loadConstant(Object value, String type) {
+        var index = constantIndex.get(value);
+        if (index == null || !constantTypes.get(index).equals(type)) {
+            index = constants.size();
+            constants.add(value);
+            constantTypes.add(type);
+            constantIndex.put(value, index);
+        }
+        code.var(ALOAD, THIS);
+        code.op(GETFIELD, cw.fieldRef(NAME, "k" + index, descriptor(type)));
+    }
+
+    private void ldc(long value) {
+        if (value == 0) code.op(LCONST_0);
+        else if (value == 1) code.op(LCONST_1);
+        else code.op(LDC2_W, cw.longConst(value));
+    }
+
+    private void ldc(Code code, int value) {
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) code.iconst(value);
+        else code.op(LDC_W, cw.integer(value));
+    }
+}
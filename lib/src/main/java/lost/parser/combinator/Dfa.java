@@ -0,0 +1,386 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parser.FAIL;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * minimized deterministic automaton over bytes, see {@link Parsers#regex(String)}
+ * <p>
+ * built once from {@link Node} trees: a Thompson NFA, the subset construction over the byte classes the NFA tells
+ * apart, then Moore's partition refinement. matching is one table lookup per byte, never backtracks and keeps the
+ * longest match. each tree gets a label, the lowest label wins where several trees match the same bytes
+ */
+final class Dfa {
+
+    /**
+     * regular expression over bytes
+     */
+    sealed interface Node {}
+
+    /**
+     * one byte of the class
+     */
+    record Bytes(ByteClass accept) implements Node {}
+
+    record Concat(List<Node> nodes) implements Node {}
+
+    record Alt(List<Node> nodes) implements Node {}
+
+    /**
+     * @param max max times, or -1 for no limit
+     */
+    record Repeat(Node node, int min, int max) implements Node {}
+
+    /**
+     * the bytes in order
+     */
+    static Node literal(byte[] bytes) {
+        var nodes = new ArrayList<Node>(bytes.length);
+        for (byte b : bytes) nodes.add(new Bytes(ByteClass.of(b)));
+        return new Concat(nodes);
+    }
+
+    /**
+     * no transition, the match can't go on
+     */
+    private static final int DEAD = -1;
+
+    private static final int MAX_NFA_STATES = 100_000;
+    private static final int MAX_DFA_STATES = 10_000;
+
+    /**
+     * column of each unsigned byte
+     */
+    private final int[] classes;
+
+    private final int width;
+
+    /**
+     * {@code state * width + column} to the next state or {@link #DEAD}, the start is state 0
+     */
+    private final int[] next;
+
+    /**
+     * label matched by each state, or -1
+     */
+    private final int[] accept;
+
+    /**
+     * states without transitions, where the match ends without reading further
+     */
+    private final boolean[] last;
+
+    private Dfa(int[] classes, int width, int[] next, int[] accept) {
+        this.classes = classes;
+        this.width = width;
+        this.next = next;
+        this.accept = accept;
+        this.last = new boolean[accept.length];
+        for (int s = 0; s < accept.length; s++) {
+            last[s] = true;
+            for (int c = 0; c < width; c++) last[s] &= next[s * width + c] == DEAD;
+        }
+    }
+
+    /**
+     * longest match from {@code pos}, its label goes to {@link Sink#longValue}
+     *
+     * @return the end, or {@link Parser#FAIL} if no prefix matches
+     */
+    long match(Input in, long pos, Sink out) {
+        var classes = this.classes;
+        var next = this.next;
+        var accept = this.accept;
+        var last = this.last;
+        int width = this.width;
+
+        int s = 0;
+        int label = accept[0];
+        long end = label >= 0 ? pos : FAIL;
+        long p = pos;
+        // a state without transitions doesn't wait for more input
+        while (p < in.limit() || !last[s] && in.more(p + 1)) {
+            s = next[s * width + classes[in.get(p) & 0xFF]];
+            if (s == DEAD) break;
+            p++;
+            if (accept[s] >= 0) {
+                label = accept[s];
+                end = p;
+            }
+        }
+        if (end >= 0) out.longValue = label;
+        return end;
+    }
+
+    /**
+     * bytes a match can start with
+     */
+    ByteClass first() {
+        var first = ByteClass.none();
+        for (int b = 0; b < 256; b++) {
+            if (next[classes[b]] != DEAD) first = first.union(ByteClass.of((byte) b));
+        }
+        return first;
+    }
+
+    /**
+     * whether the empty string matches
+     */
+    boolean nullable() {
+        return accept[0] >= 0;
+    }
+
+    /**
+     * number of states, for tests and diagnostics
+     */
+    int size() {
+        return accept.length;
+    }
+
+    // ---------------- construction ----------------
+
+    /**
+     * automaton matching any of {@code nodes}, labelled by their index
+     *
+     * @throws IllegalArgumentException if the automaton is too large
+     */
+    static Dfa of(List<Node> nodes) {
+        var nfa = new Nfa();
+        int start = nfa.split(DEAD, DEAD);
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            int match = nfa.add(null, DEAD, DEAD, i);
+            start = nfa.split(nfa.compile(nodes.get(i), match), start);
+        }
+        return nfa.determinize(start);
+    }
+
+    /**
+     * Thompson NFA, states are a byte transition, an epsilon split or a match
+     */
+    private static final class Nfa {
+
+        private final List<ByteClass> on = new ArrayList<>();
+        private int[] out1 = new int[64];
+        private int[] out2 = new int[64];
+        private int[] label = new int[64];
+
+        int add(ByteClass on, int out1, int out2, int label) {
+            int s = this.on.size();
+            if (s == MAX_NFA_STATES) throw new IllegalArgumentException("automaton too large");
+            if (s == this.out1.length) {
+                this.out1 = Arrays.copyOf(this.out1, s << 1);
+                this.out2 = Arrays.copyOf(this.out2, s << 1);
+                this.label = Arrays.copyOf(this.label, s << 1);
+            }
+            this.on.add(on);
+            this.out1[s] = out1;
+            this.out2[s] = out2;
+            this.label[s] = label;
+            return s;
+        }
+
+        int split(int out1, int out2) {
+            return add(null, out1, out2, -1);
+        }
+
+        /**
+         * states matching {@code node}, then going on to {@code next}
+         *
+         * @return the first state
+         */
+        int compile(Node node, int next) {
+            return switch (node) {
+                case Bytes b -> add(b.accept(), next, DEAD, -1);
+                case Concat c -> {
+                    int s = next;
+                    for (int i = c.nodes().size() - 1; i >= 0; i--) s = compile(c.nodes().get(i), s);
+                    yield s;
+                }
+                case Alt a -> {
+                    if (a.nodes().isEmpty()) yield next;
+                    int s = compile(a.nodes().get(a.nodes().size() - 1), next);
+                    for (int i = a.nodes().size() - 2; i >= 0; i--) s = split(compile(a.nodes().get(i), next), s);
+                    yield s;
+                }
+                case Repeat r -> {
+                    int s = next;
+                    if (r.max() < 0) {
+                        s = split(DEAD, next);
+                        // out1 may grow while compiling the body
+                        int body = compile(r.node(), s);
+                        out1[s] = body;
+                    } else {
+                        for (int i = r.min(); i < r.max(); i++) s = split(compile(r.node(), s), next);
+                    }
+                    for (int i = 0; i < r.min(); i++) s = compile(r.node(), s);
+                    yield s;
+                }
+            };
+        }
+
+        /**
+         * the byte and match states reachable from {@code from} through splits
+         */
+        private BitSet closure(BitSet from) {
+            var closure = new BitSet();
+            var seen = new BitSet();
+            var stack = new ArrayDeque<Integer>();
+            from.stream().forEach(stack::push);
+            while (!stack.isEmpty()) {
+                int s = stack.pop();
+                if (s == DEAD || seen.get(s)) continue;
+                seen.set(s);
+                if (on.get(s) != null || label[s] >= 0) closure.set(s);
+                else {
+                    stack.push(out1[s]);
+                    stack.push(out2[s]);
+                }
+            }
+            return closure;
+        }
+
+        Dfa determinize(int start) {
+            // columns: bytes no byte transition tells apart share one
+            var distinct = new LinkedHashSet<ByteClass>();
+            for (var c : on) if (c != null) distinct.add(c);
+            var classes = new int[256];
+            int width = 1;
+            for (var c : distinct) {
+                var split = new int[width * 2];
+                Arrays.fill(split, -1);
+                int n = 0;
+                for (int b = 0; b < 256; b++) {
+                    int key = classes[b] * 2 + (c.contains(b) ? 1 : 0);
+                    if (split[key] < 0) split[key] = n++;
+                    classes[b] = split[key];
+                }
+                width = n;
+            }
+            var representative = new int[width];
+            for (int b = 255; b >= 0; b--) representative[classes[b]] = b;
+
+            // subset construction
+            var ids = new HashMap<BitSet, Integer>();
+            var sets = new ArrayList<BitSet>();
+            var first = new BitSet();
+            first.set(start);
+            var initial = closure(first);
+            ids.put(initial, 0);
+            sets.add(initial);
+            var next = new int[64 * width];
+            var accept = new int[64];
+            for (int i = 0; i < sets.size(); i++) {
+                if (next.length < (i + 1) * width) next = Arrays.copyOf(next, next.length << 1);
+                if (accept.length <= i) accept = Arrays.copyOf(accept, accept.length << 1);
+
+                var set = sets.get(i);
+                int matched = -1;
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                    if (label[s] >= 0 && (matched < 0 || label[s] < matched)) matched = label[s];
+                }
+                accept[i] = matched;
+
+                for (int c = 0; c < width; c++) {
+                    var move = new BitSet();
+                    int b = representative[c];
+                    for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                        var bytes = on.get(s);
+                        if (bytes != null && bytes.contains(b)) move.set(out1[s]);
+                    }
+                    if (move.isEmpty()) {
+                        next[i * width + c] = DEAD;
+                        continue;
+                    }
+                    var target = closure(move);
+                    var id = ids.get(target);
+                    if (id == null) {
+                        id = sets.size();
+                        if (id == MAX_DFA_STATES) throw new IllegalArgumentException("automaton too large");
+                        ids.put(target, id);
+                        sets.add(target);
+                    }
+                    next[i * width + c] = id;
+                }
+            }
+            int n = sets.size();
+            return minimize(classes, width, Arrays.copyOf(next, n * width), Arrays.copyOf(accept, n));
+        }
+    }
+
+    /**
+     * drop the states that can't reach a match, then merge the equivalent ones
+     */
+    private static Dfa minimize(int[] classes, int width, int[] next, int[] accept) {
+        int n = accept.length;
+
+        var live = new boolean[n];
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int s = 0; s < n; s++) {
+                if (live[s]) continue;
+                boolean reaches = accept[s] >= 0;
+                for (int c = 0; c < width && !reaches; c++) {
+                    int t = next[s * width + c];
+                    reaches = t != DEAD && live[t];
+                }
+                if (reaches) live[s] = changed = true;
+            }
+        }
+        for (int i = 0; i < next.length; i++) if (next[i] != DEAD && !live[next[i]]) next[i] = DEAD;
+
+        // Moore: split blocks by label, then by the blocks of the targets, until stable
+        var block = new int[n];
+        int blocks = -1;
+        while (true) {
+            var rows = new HashMap<Row, Integer>();
+            var refined = new int[n];
+            for (int s = 0; s < n; s++) {
+                var row = new int[width + 1];
+                row[0] = blocks < 0 ? accept[s] : block[s];
+                for (int c = 0; c < width; c++) {
+                    int t = next[s * width + c];
+                    row[c + 1] = t == DEAD ? DEAD : block[t];
+                }
+                var key = new Row(row);
+                var id = rows.get(key);
+                if (id == null) rows.put(key, id = rows.size());
+                refined[s] = id;
+            }
+            block = refined;
+            if (rows.size() == blocks) break;
+            blocks = rows.size();
+        }
+
+        // the start is state 0, so its block is 0 too
+        var minNext = new int[blocks * width];
+        var minAccept = new int[blocks];
+        for (int s = 0; s < n; s++) {
+            int m = block[s];
+            minAccept[m] = accept[s];
+            for (int c = 0; c < width; c++) {
+                int t = next[s * width + c];
+                minNext[m * width + c] = t == DEAD ? DEAD : block[t];
+            }
+        }
+        return new Dfa(classes, width, minNext, minAccept);
+    }
+
+    private record Row(int[] row) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Row r && Arrays.equals(row, r.row);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(row);
+        }
+    }
+}
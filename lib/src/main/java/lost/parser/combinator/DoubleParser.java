@@ -0,0 +1,43 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * double parser without boxing
+ * <p>
+ * {@link #parseAt} writes the parsed double into {@link Sink#doubleValue()}
+ */
+@FunctionalInterface
+public interface DoubleParser extends ParseAt {
+
+    /**
+     * see {@link Parser#parseAt}
+     */
+    @Override
+    long parseAt(Input in, long pos, Sink out);
+
+    default double parse(ByteBuffer input) {
+        return Parsers.top_level(this, input).doubleValue;
+    }
+
+    /**
+     * generic parser of the boxed double
+     */
+    default Parser<Double> boxed() {
+        return Parsers.boxedDouble(DoubleParser.this);
+    }
+
+    default DoubleParser map(DoubleUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.doubleValue = mapper.applyAsDouble(out.doubleValue);
+            return end;
+        };
+    }
+
+    default <R> Parser<R> mapToObj(DoubleFunction<R> mapper) {
+        return Parsers.mapDouble(DoubleParser.this, mapper);
+    }
+}
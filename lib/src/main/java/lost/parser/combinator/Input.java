@@ -0,0 +1,385 @@
+package lost.parser.combinator;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * parse input addressed by absolute {@code long} positions, backed by a {@link ByteBuffer} or a {@link MemorySegment}
+ * <p>
+ * the input of a {@link Tokens} stream has one position per token, read as the byte of its kind
+ * <p>
+ * unlike {@link Parser#parse(ByteBuffer)}, reading through an input never moves the position of the underlying buffer.
+ * segment inputs may be larger than 2 GB, e.g. a mapped file
+ */
+public abstract sealed class Input {
+
+    long limit;
+
+    /**
+     * source of more bytes beyond the limit, or {@code null}
+     */
+    private final Source source;
+
+    /**
+     * bytes beyond {@link #limit} that arrive later, see {@link PushParser} and {@link ReadAhead}
+     */
+    interface Source {
+
+        /**
+         * wait until {@code end} bytes are readable, raising the limit, or until there are no more
+         *
+         * @return whether {@code end} bytes are readable
+         */
+        boolean more(long end);
+    }
+
+    private Input(long limit, Source source) {
+        this.limit = limit;
+        this.source = source;
+    }
+
+    public static Input of(ByteBuffer buffer) {
+        return new OfBuffer(buffer, null);
+    }
+
+    /**
+     * segment input, chars in big-endian order like a {@link ByteBuffer}
+     */
+    public static Input of(MemorySegment segment) {
+        return of(segment, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * segment input
+     *
+     * @param order byte order of {@link #getChar}
+     */
+    public static Input of(MemorySegment segment, ByteOrder order) {
+        return new OfSegment(segment, order, segment.byteSize(), null);
+    }
+
+    /**
+     * segment input readable up to {@code limit} at first, then as far as {@code source} raises the limit
+     */
+    static Input of(MemorySegment segment, ByteOrder order, long limit, Source source) {
+        return new OfSegment(segment, order, limit, source);
+    }
+
+    /**
+     * input of a token stream
+     */
+    static Input of(Tokens tokens) {
+        return new OfTokens(tokens);
+    }
+
+    /**
+     * input of a push parser, growing as chunks are fed
+     */
+    static OfBuffer pushed(ByteBuffer buffer, Source source) {
+        return new OfBuffer(buffer, source);
+    }
+
+    /**
+     * position after the last readable byte so far, the end of input unless there is a {@link Source}
+     */
+    public final long limit() {
+        return limit;
+    }
+
+    /**
+     * whether {@code n} bytes are readable from {@code pos}, waiting for them beyond the limit, see {@link Source}
+     */
+    public final boolean has(long pos, long n) {
+        return limit - pos >= n || more(pos + n);
+    }
+
+    /**
+     * ask the source for bytes beyond the limit, e.g. suspending the parse in push mode
+     *
+     * @return whether {@code end} bytes are readable
+     */
+    final boolean more(long end) {
+        var source = this.source;
+        return source != null && source.more(end);
+    }
+
+    /**
+     * an input over the same bytes with its own limit, without source
+     */
+    abstract Input duplicate();
+
+    public abstract byte get(long pos);
+
+    public abstract char getChar(long pos);
+
+    /**
+     * the 8 bytes at {@code pos} little-endian, the first in the low byte whatever the {@link #order()}, e.g. to test
+     * them all at once
+     */
+    abstract long getLongLE(long pos);
+
+    /**
+     * copy the bytes {@code [pos, pos + len)} into {@code dst} at {@code offset}
+     */
+    abstract void copy(long pos, byte[] dst, int offset, int len);
+
+    /**
+     * the bytes {@code [pos, pos + len)} as a buffer, {@code len} is at most 2 GB
+     */
+    public abstract ByteBuffer slice(long pos, long len);
+
+    /**
+     * the bytes {@code [pos, pos + len)} as a long-offset span
+     */
+    public final Span span(long pos, long len) {
+        return new Span(this, pos, len);
+    }
+
+    /**
+     * byte order of {@link #getChar}
+     */
+    public abstract ByteOrder order();
+
+    /**
+     * the input as a segment addressed by the same positions, used by {@link VectorScan}
+     */
+    abstract MemorySegment segment();
+
+    /**
+     * the underlying buffer
+     *
+     * @throws UnsupportedOperationException for a segment input larger than 2 GB
+     */
+    public abstract ByteBuffer buffer();
+
+    /**
+     * the token stream of a token input, or {@code null}, used by {@link Lexer#token}
+     */
+    Tokens tokens() {
+        return null;
+    }
+
+    /**
+     * buffer input, the only kind growing in place, see {@link #pushed}
+     */
+    static final class OfBuffer extends Input {
+
+        private ByteBuffer buffer;
+
+        private MemorySegment segment;
+
+        OfBuffer(ByteBuffer buffer, Source source) {
+            super(buffer.limit(), source);
+            this.buffer = buffer;
+        }
+
+        @Override
+        Input duplicate() {
+            var input = new OfBuffer(buffer.duplicate(), null);
+            input.limit = limit;
+            return input;
+        }
+
+        /**
+         * replace the buffer by a grown copy, same positions
+         */
+        void grow(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.segment = null;
+        }
+
+        @Override
+        public byte get(long pos) {
+            return buffer.get((int) pos);
+        }
+
+        @Override
+        public char getChar(long pos) {
+            return buffer.getChar((int) pos);
+        }
+
+        @Override
+        long getLongLE(long pos) {
+            var v = buffer.getLong((int) pos);
+            return buffer.order() == ByteOrder.LITTLE_ENDIAN ? v : Long.reverseBytes(v);
+        }
+
+        @Override
+        void copy(long pos, byte[] dst, int offset, int len) {
+            buffer.get((int) pos, dst, offset, len);
+        }
+
+        @Override
+        public ByteBuffer slice(long pos, long len) {
+            return buffer.slice((int) pos, (int) len);
+        }
+
+        @Override
+        public ByteOrder order() {
+            return buffer.order();
+        }
+
+        @Override
+        MemorySegment segment() {
+            var segment = this.segment;
+            if (segment == null) this.segment = segment = MemorySegment.ofBuffer(buffer.duplicate().position(0));
+            return segment;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+    }
+
+    private static final class OfSegment extends Input {
+
+        private static final ValueLayout.OfLong LONG_LE =
+                ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+        private final MemorySegment segment;
+        private final ValueLayout.OfChar charLayout;
+        private final ByteOrder order;
+
+        private ByteBuffer buffer;
+
+        OfSegment(MemorySegment segment, ByteOrder order, long limit, Source source) {
+            super(limit, source);
+            this.segment = segment;
+            this.charLayout = ValueLayout.JAVA_CHAR_UNALIGNED.withOrder(order);
+            this.order = order;
+        }
+
+        @Override
+        Input duplicate() {
+            return new OfSegment(segment, order, limit, null);
+        }
+
+        @Override
+        public byte get(long pos) {
+            return segment.get(ValueLayout.JAVA_BYTE, pos);
+        }
+
+        @Override
+        public char getChar(long pos) {
+            return segment.get(charLayout, pos);
+        }
+
+        @Override
+        long getLongLE(long pos) {
+            return segment.get(LONG_LE, pos);
+        }
+
+        @Override
+        void copy(long pos, byte[] dst, int offset, int len) {
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, dst, offset, len);
+        }
+
+        @Override
+        public ByteBuffer slice(long pos, long len) {
+            return segment.asSlice(pos, len).asByteBuffer().order(order);
+        }
+
+        @Override
+        public ByteOrder order() {
+            return order;
+        }
+
+        @Override
+        MemorySegment segment() {
+            return segment;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            var buffer = this.buffer;
+            if (buffer == null) this.buffer = buffer = segment.asByteBuffer().order(order);
+            return buffer;
+        }
+    }
+
+    private static final class OfTokens extends Input {
+
+        private static final VarHandle LONG_LE =
+                MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private final Tokens tokens;
+
+        /**
+         * the kinds as bytes, read directly by every access
+         */
+        private final byte[] kinds;
+
+        OfTokens(Tokens tokens) {
+            this(tokens, kinds(tokens));
+        }
+
+        private OfTokens(Tokens tokens, byte[] kinds) {
+            super(kinds.length, null);
+            this.tokens = tokens;
+            this.kinds = kinds;
+        }
+
+        private static byte[] kinds(Tokens tokens) {
+            var kinds = new byte[tokens.size()];
+            for (int i = 0; i < kinds.length; i++) kinds[i] = (byte) tokens.kind(i);
+            return kinds;
+        }
+
+        @Override
+        Tokens tokens() {
+            return tokens;
+        }
+
+        @Override
+        Input duplicate() {
+            return new OfTokens(tokens, kinds);
+        }
+
+        @Override
+        public byte get(long pos) {
+            return kinds[(int) pos];
+        }
+
+        @Override
+        public char getChar(long pos) {
+            int i = (int) pos;
+            return (char) (kinds[i] << 8 | kinds[i + 1] & 0xFF);
+        }
+
+        @Override
+        long getLongLE(long pos) {
+            return (long) LONG_LE.get(kinds, (int) pos);
+        }
+
+        @Override
+        void copy(long pos, byte[] dst, int offset, int len) {
+            System.arraycopy(kinds, (int) pos, dst, offset, len);
+        }
+
+        @Override
+        public ByteBuffer slice(long pos, long len) {
+            return ByteBuffer.wrap(kinds, (int) pos, (int) len).slice();
+        }
+
+        @Override
+        public ByteOrder order() {
+            return ByteOrder.BIG_ENDIAN;
+        }
+
+        @Override
+        MemorySegment segment() {
+            return MemorySegment.ofArray(kinds);
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return ByteBuffer.wrap(kinds);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * int parser without boxing
+ * <p>
+ * {@link #parseAt} writes the parsed int into {@link Sink#longValue()}
+ */
+@FunctionalInterface
+public interface IntParser extends ParseAt {
+
+    /**
+     * see {@link Parser#parseAt}
+     */
+    @Override
+    long parseAt(Input in, long pos, Sink out);
+
+    default int parse(ByteBuffer input) {
+        return (int) Parsers.top_level(this, input).longValue;
+    }
+
+    /**
+     * generic parser of the boxed int
+     */
+    default Parser<Integer> boxed() {
+        return Parsers.boxedInt(IntParser.this);
+    }
+
+    default IntParser map(IntUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = mapper.applyAsInt((int) out.longValue);
+            return end;
+        };
+    }
+
+    default LongParser mapToLong(IntToLongFunction mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = mapper.applyAsLong((int) out.longValue);
+            return end;
+        };
+    }
+
+    default <R> Parser<R> mapToObj(IntFunction<R> mapper) {
+        return Parsers.mapInt(IntParser.this, mapper);
+    }
+
+    /**
+     * and parser
+     */
+    default IntParser and(IntParser other, IntBinaryOperator merge) {
+        return (in, pos, out) -> {
+            var a_end = parseAt(in, pos, out);
+            if (a_end < 0) return a_end;
+            var a_value = (int) out.longValue;
+            var b_end = other.parseAt(in, a_end, out);
+            if (b_end < 0) return b_end;
+            out.longValue = merge.applyAsInt(a_value, (int) out.longValue);
+            return b_end;
+        };
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    default Parser<int[]> repeat(int min, int max) {
+        return Parsers.repeatInts(IntParser.this, min, max);
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min,}`
+     *
+     * @param min min times
+     */
+    default Parser<int[]> repeat(int min) {
+        return Parsers.repeatInts(IntParser.this, min, Integer.MAX_VALUE);
+    }
+
+    /**
+     * one or many parser
+     * <p>
+     * like regex `+`
+     */
+    default Parser<int[]> oneOrMany() {
+        return repeat(1);
+    }
+
+    /**
+     * zero or many parser
+     * <p>
+     * like regex `*`
+     */
+    default Parser<int[]> zeroOrMany() {
+        return Parsers.zeroOrManyInts(IntParser.this);
+    }
+
+    /**
+     * fold repeat parser by times
+     * <p>
+     * like regex `{min.max}` folding the values from {@code seed} without boxing, e.g. a sum
+     */
+    default IntParser repeatFold(int min, int max, int seed, IntBinaryOperator accumulator) {
+        return Parsers.repeatFoldInts(IntParser.this, min, max, seed, accumulator);
+    }
+}
@@ -0,0 +1,206 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parser.FAIL;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * lexer turning bytes into a {@link Tokens} stream in one pass, so that a grammar backtracks over tokens instead of
+ * re-scanning bytes
+ * <p>
+ * the token definitions, literals, runs of a {@link ByteClass} and {@link Parsers#regex regexes}, are compiled
+ * together into one minimized DFA. at each position the longest token wins, then the one defined first, so keywords
+ * go before identifiers
+ * <pre>{@code
+ * var lexer = Lexer.builder()
+ *         .run("space", ByteClass.of(" \t\r\n"))
+ *         .literal("[", "[")
+ *         .literal("]", "]")
+ *         .regex("number", "-?[0-9]+")
+ *         .ignore("space")
+ *         .build();
+ * var array = lexer.token("[")
+ *         .and(lexer.token("number").zeroOrMany(), (open, numbers) -> numbers)
+ *         .and(lexer.token("]"), (numbers, close) -> numbers);
+ * List<Span> numbers = Parsers.parse(array, lexer.tokenize(input));
+ * }</pre>
+ */
+public final class Lexer {
+
+    /**
+     * at most one byte per kind in {@link Tokens#input()}
+     */
+    private static final int MAX_KINDS = 256;
+
+    private final List<String> names;
+
+    private final Map<String, Integer> kinds;
+
+    private final boolean[] ignored;
+
+    private final Dfa dfa;
+
+    private Lexer(List<String> names, Map<String, Integer> kinds, boolean[] ignored, Dfa dfa) {
+        this.names = names;
+        this.kinds = kinds;
+        this.ignored = ignored;
+        this.dfa = dfa;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final List<String> names = new ArrayList<>();
+        private final List<Dfa.Node> nodes = new ArrayList<>();
+        private final Set<String> ignored = new HashSet<>();
+
+        private Builder() {}
+
+        /**
+         * token of exactly {@code text}, in UTF-8
+         */
+        public Builder literal(String name, String text) {
+            return define(name, Dfa.literal(text.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        /**
+         * token of one or more bytes of {@code accept}, like regex `[...]+`
+         */
+        public Builder run(String name, ByteClass accept) {
+            return define(name, new Dfa.Repeat(new Dfa.Bytes(accept), 1, -1));
+        }
+
+        /**
+         * token matching {@code pattern}, see {@link Parsers#regex(String)}
+         */
+        public Builder regex(String name, String pattern) {
+            return define(name, RegexSyntax.parse(pattern));
+        }
+
+        private Builder define(String name, Dfa.Node node) {
+            if (names.contains(name)) throw new IllegalArgumentException("token already defined: " + name);
+            if (names.size() == MAX_KINDS) throw new IllegalArgumentException("more than " + MAX_KINDS + " tokens");
+            names.add(name);
+            nodes.add(node);
+            return this;
+        }
+
+        /**
+         * lex the tokens of {@code names} without adding them to the stream, e.g. whitespaces and comments
+         */
+        public Builder ignore(String... names) {
+            for (var name : names) {
+                if (!this.names.contains(name)) throw new IllegalArgumentException("no token " + name);
+                ignored.add(name);
+            }
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a token matches the empty string or the automaton is too large
+         */
+        public Lexer build() {
+            var dfa = Dfa.of(nodes);
+            if (dfa.nullable()) {
+                var out = new Sink();
+                dfa.match(Input.of(ByteBuffer.allocate(0)), 0, out);
+                var name = names.get((int) out.longValue);
+                throw new IllegalArgumentException("token matches the empty string: " + name);
+            }
+
+            var kinds = new HashMap<String, Integer>();
+            var ignored = new boolean[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                kinds.put(names.get(i), i);
+                ignored[i] = this.ignored.contains(names.get(i));
+            }
+            return new Lexer(List.copyOf(names), kinds, ignored, dfa);
+        }
+    }
+
+    /**
+     * kind of the tokens named {@code name}, their byte in {@link Tokens#input()}
+     */
+    public int kind(String name) {
+        var kind = kinds.get(name);
+        if (kind == null) throw new IllegalArgumentException("no token " + name);
+        return kind;
+    }
+
+    /**
+     * token parser over {@link Tokens#input()}
+     * <p>
+     * matches one token named {@code name}, the value is its text
+     */
+    public Parser<Span> token(String name) {
+        return new Token(name, kind(name));
+    }
+
+    record Token(String name, int kind) implements Combinator<Span>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var tokens = in.tokens();
+            if (tokens == null) throw new IllegalStateException("token parser on bytes, see Lexer#tokenize");
+            if (!in.has(pos, 1) || in.get(pos) != (byte) kind) {
+                out.expected(pos, this);
+                return FAIL;
+            }
+            out.value = tokens.text((int) pos);
+            return pos + 1;
+        }
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.of((byte) kind);
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * lex the bytes from the position to the limit of {@code input}, without moving its position
+     *
+     * @throws ParseError where no token matches
+     */
+    public Tokens tokenize(ByteBuffer input) {
+        return tokenize(Input.of(input), input.position());
+    }
+
+    /**
+     * lex the whole input, at most 2 GB since the token starts are ints
+     *
+     * @throws ParseError where no token matches
+     */
+    public Tokens tokenize(Input in) {
+        return tokenize(in, 0);
+    }
+
+    private Tokens tokenize(Input in, long pos) {
+        var tokens = new Tokens(in, names, 1024);
+        var out = new Sink();
+        while (in.has(pos, 1)) {
+            var end = dfa.match(in, pos, out);
+            if (end < 0) throw new ParseError(pos, List.of("token"));
+            if (end > Integer.MAX_VALUE) throw new IllegalArgumentException("input larger than 2 GB");
+
+            int kind = (int) out.longValue;
+            if (!ignored[kind]) tokens.add(kind, (int) pos, (int) (end - pos));
+            pos = end;
+        }
+        tokens.end(pos);
+        return tokens;
+    }
+}
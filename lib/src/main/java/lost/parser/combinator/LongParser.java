@@ -0,0 +1,109 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * long parser without boxing
+ * <p>
+ * {@link #parseAt} writes the parsed long into {@link Sink#longValue()}
+ */
+@FunctionalInterface
+public interface LongParser extends ParseAt {
+
+    /**
+     * see {@link Parser#parseAt}
+     */
+    @Override
+    long parseAt(Input in, long pos, Sink out);
+
+    default long parse(ByteBuffer input) {
+        return Parsers.top_level(this, input).longValue;
+    }
+
+    /**
+     * generic parser of the boxed long
+     */
+    default Parser<Long> boxed() {
+        return Parsers.boxedLong(LongParser.this);
+    }
+
+    default LongParser map(LongUnaryOperator mapper) {
+        return (in, pos, out) -> {
+            var end = parseAt(in, pos, out);
+            if (end >= 0) out.longValue = mapper.applyAsLong(out.longValue);
+            return end;
+        };
+    }
+
+    default <R> Parser<R> mapToObj(LongFunction<R> mapper) {
+        return Parsers.mapLong(LongParser.this, mapper);
+    }
+
+    /**
+     * and parser
+     */
+    default LongParser and(LongParser other, LongBinaryOperator merge) {
+        return (in, pos, out) -> {
+            var a_end = parseAt(in, pos, out);
+            if (a_end < 0) return a_end;
+            var a_value = out.longValue;
+            var b_end = other.parseAt(in, a_end, out);
+            if (b_end < 0) return b_end;
+            out.longValue = merge.applyAsLong(a_value, out.longValue);
+            return b_end;
+        };
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    default Parser<long[]> repeat(int min, int max) {
+        return Parsers.repeatLongs(LongParser.this, min, max);
+    }
+
+    /**
+     * repeat parser by times
+     * <p>
+     * like regex `{min,}`
+     *
+     * @param min min times
+     */
+    default Parser<long[]> repeat(int min) {
+        return Parsers.repeatLongs(LongParser.this, min, Integer.MAX_VALUE);
+    }
+
+    /**
+     * one or many parser
+     * <p>
+     * like regex `+`
+     */
+    default Parser<long[]> oneOrMany() {
+        return repeat(1);
+    }
+
+    /**
+     * zero or many parser
+     * <p>
+     * like regex `*`
+     */
+    default Parser<long[]> zeroOrMany() {
+        return Parsers.zeroOrManyLongs(LongParser.this);
+    }
+
+    /**
+     * fold repeat parser by times
+     * <p>
+     * like regex `{min.max}` folding the values from {@code seed} without boxing, e.g. a sum
+     */
+    default LongParser repeatFold(int min, int max, long seed, LongBinaryOperator accumulator) {
+        return Parsers.repeatFoldLongs(LongParser.this, min, max, seed, accumulator);
+    }
+}
@@ -0,0 +1,27 @@
+package lost.parser.combinator;
+
+/**
+ * FIRST set of a parser, used by {@link Parsers#or} to build its first-byte dispatch table
+ * <p>
+ * parsers that don't implement it (e.g. lambdas) are treated as unknown and always tried
+ */
+interface Lookahead {
+
+    /**
+     * superset of the bytes a non-empty match can start with, or {@code null} if unknown
+     */
+    ByteClass first();
+
+    /**
+     * whether a match may succeed without looking at the next byte, e.g. an empty match
+     */
+    boolean nullable();
+
+    static ByteClass first(Object parser) {
+        return parser instanceof Lookahead lookahead ? lookahead.first() : null;
+    }
+
+    static boolean nullable(Object parser) {
+        return !(parser instanceof Lookahead lookahead) || lookahead.nullable();
+    }
+}
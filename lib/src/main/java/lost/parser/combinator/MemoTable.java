@@ -0,0 +1,175 @@
+package lost.parser.combinator;
+
+/**
+ * bounded packrat memo table, caching {@code (rule, position) -> outcome}
+ * <p>
+ * a fixed-size 2-way set-associative cache: when both ways of a set are taken, the entry at the lower position is
+ * evicted, since parsing moves forward, and entries before the {@link Parsers#cut()} are free. each parse takes a
+ * fresh generation and only sees entries of its own generation, so a table is reset in O(1) and pooled per thread,
+ * see {@link #local(int)}. the values and expected items of a generation are released by {@link #clear(long)}, so
+ * a pooled table doesn't keep the results of a finished parse (and their inputs) reachable
+ */
+final class MemoTable {
+
+    /**
+     * approximate heap bytes per entry
+     */
+    static final int ENTRY_BYTES = 76;
+
+    /**
+     * default memory cap, set with {@code -Dlost.parser.combinator.memo.maxBytes}
+     */
+    static final long DEFAULT_MAX_BYTES = Long.getLong("lost.parser.combinator.memo.maxBytes", 8L << 20);
+
+    private static final ThreadLocal<MemoTable> LOCAL = new ThreadLocal<>();
+
+    private final int mask;
+    private final long[] generations;
+    private final long[] positions;
+    private final int[] rules;
+    private final long[] ends;
+    private final Object[] values;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    private final long[] cuts;
+
+    /**
+     * furthest failure position of the parse of the entry, and what the entry expected there, replayed on hits
+     */
+    private final long[] furthests;
+
+    private final Object[][] expected;
+
+    /**
+     * slots stored since the last {@link #clear(long)}, counted beyond the capacity but kept up to it
+     */
+    private final int[] stored;
+
+    private int storedCount;
+
+    private long generation;
+
+    private MemoTable(int capacity) {
+        this.mask = capacity - 1;
+        this.generations = new long[capacity];
+        this.positions = new long[capacity];
+        this.rules = new int[capacity];
+        this.ends = new long[capacity];
+        this.values = new Object[capacity];
+        this.longValues = new long[capacity];
+        this.doubleValues = new double[capacity];
+        this.cuts = new long[capacity];
+        this.furthests = new long[capacity];
+        this.expected = new Object[capacity][];
+        this.stored = new int[capacity];
+    }
+
+    /**
+     * number of entries fitting in {@code maxBytes}, a power of two
+     */
+    static int capacity(long maxBytes) {
+        if (!(maxBytes > 0)) throw new IllegalArgumentException("`maxBytes` requires > 0");
+        return (int) Long.highestOneBit(Math.max(2, Math.min(maxBytes / ENTRY_BYTES, 1 << 30)));
+    }
+
+    /**
+     * the table of the current thread with {@code capacity} entries
+     */
+    static MemoTable local(int capacity) {
+        var table = LOCAL.get();
+        if (table == null || table.capacity() != capacity) LOCAL.set(table = new MemoTable(capacity));
+        return table;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * generation of a new parse, starting with an empty view of the table
+     */
+    long nextGeneration() {
+        return ++generation;
+    }
+
+    private int set(int rule, long pos) {
+        int h = rule * 0x9E3779B9 ^ (int) (pos ^ (pos >>> 32)) * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & mask & ~1;
+    }
+
+    /**
+     * @return the slot of the entry, or -1
+     */
+    int find(int rule, long pos, long generation) {
+        int slot = set(rule, pos);
+        if (matches(slot, rule, pos, generation)) return slot;
+        if (matches(slot + 1, rule, pos, generation)) return slot + 1;
+        return -1;
+    }
+
+    private boolean matches(int slot, int rule, long pos, long generation) {
+        return generations[slot] == generation && positions[slot] == pos && rules[slot] == rule;
+    }
+
+    /**
+     * restore the cached values, cut and expected items into {@code out}, as if parsed again
+     *
+     * @return the cached result of {@link Parser#parseAt}
+     */
+    long restore(int slot, Sink out) {
+        var end = ends[slot];
+        if (cuts[slot] > out.cut) out.cut = cuts[slot];
+        if (end >= 0) {
+            out.value = values[slot];
+            out.longValue = longValues[slot];
+            out.doubleValue = doubleValues[slot];
+        }
+        var items = expected[slot];
+        if (items != null) for (var item : items) out.expected(furthests[slot], item);
+        return end;
+    }
+
+    /**
+     * cache the result of {@link Parser#parseAt}, the cut, on success the values of {@code out}, and the items
+     * expected since the furthest failure of {@code out} was {@code furthest} with {@code expectedCount} items
+     */
+    void store(int rule, long pos, long generation, long end, Sink out, long furthest, int expectedCount) {
+        int slot = set(rule, pos);
+        if (live(slot, generation, out.cut)
+                && (!live(slot + 1, generation, out.cut) || positions[slot + 1] < positions[slot])) slot++;
+        generations[slot] = generation;
+        positions[slot] = pos;
+        rules[slot] = rule;
+        ends[slot] = end;
+        values[slot] = end >= 0 ? out.value : null;
+        longValues[slot] = out.longValue;
+        doubleValues[slot] = out.doubleValue;
+        cuts[slot] = out.cut;
+        furthests[slot] = out.furthest;
+        expected[slot] = out.expectedSince(furthest, expectedCount);
+        if (storedCount < stored.length) stored[storedCount] = slot;
+        storedCount++;
+    }
+
+    /**
+     * drop the references held by the entries of {@code generation}, once its parse is done
+     */
+    void clear(long generation) {
+        if (storedCount > stored.length) {
+            for (int slot = 0; slot < generations.length; slot++) release(slot, generation);
+        } else {
+            for (int i = 0; i < storedCount; i++) release(stored[i], generation);
+        }
+        storedCount = 0;
+    }
+
+    private void release(int slot, long generation) {
+        if (generations[slot] != generation) return;
+        values[slot] = null;
+        expected[slot] = null;
+    }
+
+    private boolean live(int slot, long generation, long cut) {
+        return generations[slot] == generation && positions[slot] >= cut;
+    }
+}
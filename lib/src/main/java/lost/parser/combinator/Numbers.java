@@ -0,0 +1,301 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parser.FAIL;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ASCII number parsing straight from the input, see {@link Parsers#int64()} and {@link Parsers#float64()}
+ * <p>
+ * digits are taken 8 at a time (SWAR) where 8 bytes are already readable, doubles are correctly rounded by the
+ * Clinger fast path, then Eisel-Lemire on 128-bit powers of ten, then {@link Double#parseDouble} for the rare
+ * ambiguous cases
+ */
+final class Numbers {
+
+    private Numbers() {}
+
+    // ---------------- SWAR ----------------
+
+    /**
+     * whether the 8 bytes of {@code v}, little-endian, are all ASCII digits
+     */
+    static boolean isEightDigits(long v) {
+        return (((v + 0x4646464646464646L) | (v - 0x3030303030303030L)) & 0x8080808080808080L) == 0;
+    }
+
+    /**
+     * value of 8 ASCII digits, little-endian so the first digit is the lowest byte
+     */
+    static int eightDigits(long v) {
+        v -= 0x3030303030303030L;
+        v = (v * 10) + (v >>> 8);
+        long lo = (v & 0x000000FF000000FFL) * 0x000F424000000064L;
+        long hi = ((v >>> 16) & 0x000000FF000000FFL) * 0x0000271000000001L;
+        return (int) ((lo + hi) >>> 32);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // ---------------- integers ----------------
+
+    /**
+     * parse {@code [-+]?[0-9]+} into {@link Sink#longValue}
+     *
+     * @return the end, or {@link Parser#FAIL} without digits or on overflow of {@code [min, max]}
+     */
+    static long parseLong(Input in, long pos, Sink out, long min, long max) {
+        long p = pos;
+        boolean negative = false;
+        if (in.has(p, 1)) {
+            var c = in.get(p);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                p++;
+            }
+        }
+
+        long start = p;
+        // accumulated negated, like Long.parseLong, so that MIN_VALUE fits
+        long acc = 0;
+        // up to 16 digits 8 at a time can't overflow
+        while (p - start <= 8 && in.limit() - p >= 8) {
+            long v = in.getLongLE(p);
+            if (!isEightDigits(v)) break;
+            acc = acc * 100_000_000 - eightDigits(v);
+            p += 8;
+        }
+        long limit = negative ? min : -max;
+        if (acc < limit) return FAIL;
+        long multmin = limit / 10;
+        while (in.has(p, 1)) {
+            var b = in.get(p);
+            if (!isDigit(b)) break;
+            int d = b - '0';
+            if (acc < multmin) return FAIL;
+            acc *= 10;
+            if (acc < limit + d) return FAIL;
+            acc -= d;
+            p++;
+        }
+        if (p == start) return FAIL;
+
+        out.longValue = negative ? acc : -acc;
+        return p;
+    }
+
+    // ---------------- doubles ----------------
+
+    /**
+     * below it 8 more digits still fit unsigned
+     */
+    private static final long SWAR_LIMIT = 100_000_000_000L;
+
+    /**
+     * below it one more digit still fits unsigned
+     */
+    private static final long MANTISSA_LIMIT = 1_000_000_000_000_000_000L;
+
+    /**
+     * parse {@code [-+]?([0-9]+(\.[0-9]*)?|\.[0-9]+)([eE][-+]?[0-9]+)?} into {@link Sink#doubleValue}, correctly
+     * rounded
+     *
+     * @return the end, or {@link Parser#FAIL} without digits
+     */
+    static long parseDouble(Input in, long pos, Sink out) {
+        long p = pos;
+        boolean negative = false;
+        if (in.has(p, 1)) {
+            var c = in.get(p);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                p++;
+            }
+        }
+
+        // first 19 significant digits, unsigned, the rest only count in the exponent
+        long w = 0;
+        long exponent = 0;
+        boolean truncated = false;
+        long digits = 0;
+
+        while (in.limit() - p >= 8 && Long.compareUnsigned(w, SWAR_LIMIT) < 0) {
+            long v = in.getLongLE(p);
+            if (!isEightDigits(v)) break;
+            w = w * 100_000_000 + eightDigits(v);
+            p += 8;
+            digits += 8;
+        }
+        while (in.has(p, 1)) {
+            var b = in.get(p);
+            if (!isDigit(b)) break;
+            if (Long.compareUnsigned(w, MANTISSA_LIMIT) < 0) w = w * 10 + (b - '0');
+            else {
+                exponent++;
+                truncated |= b != '0';
+            }
+            p++;
+            digits++;
+        }
+
+        if (in.has(p, 1) && in.get(p) == '.') {
+            long q = p + 1;
+            while (in.limit() - q >= 8 && Long.compareUnsigned(w, SWAR_LIMIT) < 0) {
+                long v = in.getLongLE(q);
+                if (!isEightDigits(v)) break;
+                w = w * 100_000_000 + eightDigits(v);
+                exponent -= 8;
+                q += 8;
+            }
+            while (in.has(q, 1)) {
+                var b = in.get(q);
+                if (!isDigit(b)) break;
+                if (Long.compareUnsigned(w, MANTISSA_LIMIT) < 0) {
+                    w = w * 10 + (b - '0');
+                    exponent--;
+                } else truncated |= b != '0';
+                q++;
+            }
+            digits += q - p - 1;
+            // a lone dot isn't part of the number
+            if (digits > 0) p = q;
+        }
+        if (digits == 0) return FAIL;
+
+        if (in.has(p, 1) && (in.get(p) | 0x20) == 'e') {
+            long q = p + 1;
+            boolean negativeExponent = false;
+            if (in.has(q, 1) && (in.get(q) == '-' || in.get(q) == '+')) negativeExponent = in.get(q++) == '-';
+            if (in.has(q, 1) && isDigit(in.get(q))) {
+                long e = 0;
+                while (in.has(q, 1) && isDigit(in.get(q))) {
+                    // beyond any double either way
+                    if (e < 100_000) e = e * 10 + (in.get(q) - '0');
+                    q++;
+                }
+                exponent += negativeExponent ? -e : e;
+                p = q;
+            }
+        }
+
+        var value = toDouble(w, exponent);
+        // the dropped digits put the value between w and w + 1
+        if (truncated && value != toDouble(w + 1, exponent)) value = Double.NaN;
+        if (Double.isNaN(value)) value = fallback(in, pos, p);
+        else if (negative) value = -value;
+
+        out.doubleValue = value;
+        return p;
+    }
+
+    private static double fallback(Input in, long from, long to) {
+        var bytes = new byte[(int) (to - from)];
+        in.copy(from, bytes, 0, bytes.length);
+        return Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+        1e20, 1e21, 1e22
+    };
+
+    /**
+     * {@code w * 10^q} correctly rounded, {@code w} unsigned, or NaN if undecided
+     */
+    static double toDouble(long w, long q) {
+        if (w == 0) return 0.0;
+        // both exact, so is their correctly rounded product or quotient
+        if (q >= -22 && q <= 22 && Long.compareUnsigned(w, 1L << 53) <= 0) {
+            return q >= 0 ? w * POWERS_OF_TEN[(int) q] : w / POWERS_OF_TEN[(int) -q];
+        }
+        // below half the smallest subnormal or above the largest double for any w < 2^64
+        if (q < MIN_EXPONENT) return 0.0;
+        if (q > MAX_EXPONENT) return Double.POSITIVE_INFINITY;
+        return eiselLemire(w, (int) q);
+    }
+
+    private static final int MIN_EXPONENT = -342;
+    private static final int MAX_EXPONENT = 308;
+
+    /**
+     * 128-bit mantissas of {@code 10^q} for q in [MIN_EXPONENT, MAX_EXPONENT], normalized to the top bit, truncated
+     * for q >= 0 and rounded up for q < 0
+     */
+    private static final long[] POWERS_HI = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    private static final long[] POWERS_LO = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static {
+        var five = BigInteger.valueOf(5);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            BigInteger c;
+            if (q >= 0) {
+                var power = five.pow(q);
+                int shift = 128 - power.bitLength();
+                c = shift >= 0 ? power.shiftLeft(shift) : power.shiftRight(-shift);
+            } else {
+                var power = five.pow(-q);
+                int z = power.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+                while (c.bitLength() > 128) c = c.shiftRight(1);
+            }
+            POWERS_HI[q - MIN_EXPONENT] = c.shiftRight(64).longValue();
+            POWERS_LO[q - MIN_EXPONENT] = c.longValue();
+        }
+    }
+
+    /**
+     * Eisel-Lemire: {@code w * 10^q} from the top bits of a 128-bit product, or NaN when they don't decide the
+     * rounding
+     */
+    private static double eiselLemire(long w, int q) {
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+        long exp2 = ((217706L * q) >> 16) + 64 + 1023 - lz;
+
+        long hi5 = POWERS_HI[q - MIN_EXPONENT];
+        long xHi = unsignedMultiplyHigh(w, hi5);
+        long xLo = w * hi5;
+
+        // the truncated product may be just below a rounding boundary, refine with the low half of the power
+        if ((xHi & 0x1FF) == 0x1FF && Long.compareUnsigned(xLo + w, w) < 0) {
+            long lo5 = POWERS_LO[q - MIN_EXPONENT];
+            long yHi = unsignedMultiplyHigh(w, lo5);
+            long yLo = w * lo5;
+            long mergedHi = xHi;
+            long mergedLo = xLo + yHi;
+            if (Long.compareUnsigned(mergedLo, xLo) < 0) mergedHi++;
+            if ((mergedHi & 0x1FF) == 0x1FF && mergedLo + 1 == 0 && Long.compareUnsigned(yLo + w, w) < 0) {
+                return Double.NaN;
+            }
+            xHi = mergedHi;
+            xLo = mergedLo;
+        }
+
+        long msb = xHi >>> 63;
+        long mantissa = xHi >>> (msb + 9);
+        exp2 -= 1 ^ msb;
+
+        // exactly halfway between two doubles, round-to-even needs all the digits
+        if (xLo == 0 && (xHi & 0x1FF) == 0 && (mantissa & 3) == 1) return Double.NaN;
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if ((mantissa >>> 53) > 0) {
+            mantissa >>>= 1;
+            exp2++;
+        }
+        // subnormal or infinite, left to the fallback
+        if (Long.compareUnsigned(exp2 - 1, 0x7FF - 1) >= 0) return Double.NaN;
+
+        return Double.longBitsToDouble(exp2 << 52 | mantissa & 0x000FFFFFFFFFFFFFL);
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
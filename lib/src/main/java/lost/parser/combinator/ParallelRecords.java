@@ -0,0 +1,108 @@
+package lost.parser.combinator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collector;
+
+/**
+ * delimited records parsed in parallel, see {@link Parsers#parallelRecords}
+ * <p>
+ * a range splits at the first delimiter after its middle into work-stealing halves, down to chunks of a few records.
+ * each chunk parses its records over its own duplicate of the input with the limit at the end of the record, so a
+ * record parser never reads into the next record
+ */
+final class ParallelRecords<T, A, R> extends RecursiveTask<A> {
+
+    private static final long MIN_CHUNK = 64 << 10;
+
+    private final Input in;
+    private final ByteClass delimiters;
+    private final Parser<T> record;
+    private final Collector<? super T, A, R> collector;
+    /**
+     * the container of a concurrent unordered collector, shared by all chunks, or {@code null}
+     */
+    private final A shared;
+    private final long chunk;
+    private final long from;
+    private final long to;
+
+    private ParallelRecords(
+            Input in,
+            ByteClass delimiters,
+            Parser<T> record,
+            Collector<? super T, A, R> collector,
+            A shared,
+            long chunk,
+            long from,
+            long to) {
+        this.in = in;
+        this.delimiters = delimiters;
+        this.record = record;
+        this.collector = collector;
+        this.shared = shared;
+        this.chunk = chunk;
+        this.from = from;
+        this.to = to;
+    }
+
+    static <T, A, R> R parse(
+            Input in, long from, ByteClass delimiters, Parser<T> record, Collector<? super T, A, R> collector) {
+        var characteristics = collector.characteristics();
+        var shared = characteristics.contains(Collector.Characteristics.CONCURRENT)
+                        && characteristics.contains(Collector.Characteristics.UNORDERED)
+                ? collector.supplier().get()
+                : null;
+        long to = in.limit();
+        long chunk = Math.max(MIN_CHUNK, (to - from) / (ForkJoinPool.getCommonPoolParallelism() * 8L));
+        var container = ForkJoinPool.commonPool()
+                .invoke(new ParallelRecords<>(in, delimiters, record, collector, shared, chunk, from, to));
+        if (characteristics.contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            @SuppressWarnings("unchecked")
+            var result = (R) container;
+            return result;
+        }
+        return collector.finisher().apply(container);
+    }
+
+    @Override
+    protected A compute() {
+        if (to - from > chunk) {
+            long end = Scan.until(in, from + (to - from) / 2, to, delimiters);
+            if (end < to) {
+                var left = split(from, end + 1);
+                left.fork();
+                var right = split(end + 1, to).compute();
+                var container = left.join();
+                return shared != null ? shared : collector.combiner().apply(container, right);
+            }
+        }
+        return records();
+    }
+
+    private ParallelRecords<T, A, R> split(long from, long to) {
+        return new ParallelRecords<>(in, delimiters, record, collector, shared, chunk, from, to);
+    }
+
+    private A records() {
+        var in = this.in.duplicate();
+        var out = new Sink();
+        var container = shared != null ? shared : collector.supplier().get();
+        var accumulator = collector.accumulator();
+
+        // a trailing delimiter ends the last record, it doesn't start an empty one
+        try {
+            for (long pos = from; pos < to; ) {
+                long end = Scan.until(in, pos, to, delimiters);
+                in.limit = end;
+                long matched = record.parseAt(in, pos, out);
+                if (matched != end) throw out.error(matched < 0 ? pos : matched);
+                accumulator.accept(container, out.value());
+                pos = end + 1;
+            }
+        } finally {
+            out.release();
+        }
+        return container;
+    }
+}
@@ -0,0 +1,16 @@
+package lost.parser.combinator;
+
+/**
+ * the position protocol of {@link Parser#parseAt}, shared by the built-in parsers and the parsers without boxing
+ * <p>
+ * the byte, char, int and long parsers write their value into {@link Sink#longValue}, the double parser into
+ * {@link Sink#doubleValue}, the others into {@link Sink#value}
+ */
+@FunctionalInterface
+interface ParseAt {
+
+    /**
+     * see {@link Parser#parseAt}
+     */
+    long parseAt(Input in, long pos, Sink out);
+}
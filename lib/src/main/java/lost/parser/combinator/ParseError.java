@@ -1,12 +1,59 @@
 package lost.parser.combinator;
 
+import java.util.List;
+
 public class ParseError extends RuntimeException {
 
+    private final long offset;
+
+    private final List<String> expected;
+
     public ParseError(String message) {
-        super(message, null, false, false);
+        this(message, null);
     }
 
     public ParseError(String message, Throwable cause) {
         super(message, cause, false, false);
+        this.offset = -1;
+        this.expected = List.of();
+    }
+
+    /**
+     * failure at {@code offset}, where one of {@code expected} (literals, byte classes or rule names) would match
+     */
+    public ParseError(long offset, List<String> expected) {
+        super(null, null, false, false);
+        this.offset = offset;
+        this.expected = List.copyOf(expected);
+    }
+
+    /**
+     * offset of the furthest failure, or -1 if unknown
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * what was expected at {@link #offset()}, possibly empty
+     */
+    public List<String> expected() {
+        return expected;
+    }
+
+    /**
+     * e.g. {@code parse error at 12, expected "true", "false" or [0-9]}, built when asked for
+     */
+    @Override
+    public String getMessage() {
+        var message = super.getMessage();
+        if (message != null) return message;
+
+        var sb = new StringBuilder("parse error at ").append(offset);
+        for (int i = 0; i < expected.size(); i++) {
+            sb.append(i == 0 ? ", expected " : i == expected.size() - 1 ? " or " : ", ");
+            sb.append(expected.get(i));
+        }
+        return sb.toString();
     }
 }
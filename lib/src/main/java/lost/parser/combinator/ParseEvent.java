@@ -0,0 +1,49 @@
+package lost.parser.combinator;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * flight recorder event of a top-level parse
+ * <p>
+ * disabled by default, enable it in a recording, e.g. {@code jfr configure lost.parser.combinator.Parse#enabled=true}.
+ * a disabled event is never committed and its allocation is eliminated by the JIT
+ */
+@Name("lost.parser.combinator.Parse")
+@Label("Parse")
+@Category("Parser")
+@Description("Top-level parse of an input")
+@Enabled(false)
+@StackTrace(false)
+final class ParseEvent extends Event {
+
+    @Label("Input Size")
+    @DataAmount
+    long inputSize;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Failure Offset")
+    @Description("Offset of the parse error, or -1")
+    long failureOffset;
+
+    /**
+     * end the event of a parse of {@code size} bytes failing with {@code error} or {@code null}, committing it if
+     * enabled
+     */
+    void report(long size, ParseError error) {
+        end();
+        if (!shouldCommit()) return;
+        inputSize = size;
+        success = error == null;
+        failureOffset = error == null ? -1 : error.offset();
+        commit();
+    }
+}
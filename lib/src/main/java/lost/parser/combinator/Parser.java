@@ -7,8 +7,40 @@ import java.util.function.BiFunction;
 
 public interface Parser<T> {
 
+    /**
+     * {@link #parseAt} result signalling failure
+     */
+    long FAIL = -1;
+
+    /**
+     * {@link #parseAt} result signalling a hard error after a {@link Parsers#cut()} or {@link Parsers#commit},
+     * which or / opt / repeat don't recover from
+     */
+    long ERROR = -2;
+
     ParseResult<T> parse(ByteBuffer input);
 
+    /**
+     * allocation-free parse
+     * <p>
+     * parse from {@code pos} and write the value into {@code out}
+     *
+     * @return the position after the match, or a negative code such as {@link #FAIL} on failure
+     */
+    default long parseAt(Input in, long pos, Sink out) {
+        // a slice from pos, so that segments over 2 GB and token streams adapt too, a parse sees at most 2 GB.
+        // beyond the limit so far too, e.g. the windows of a mapped file not yet read ahead
+        in.has(pos, Integer.MAX_VALUE);
+        var buffer = in.slice(pos, Math.min(in.limit() - pos, Integer.MAX_VALUE)).order(in.order());
+        try {
+            var result = parse(buffer);
+            out.value = result.value();
+            return pos + result.rest().position();
+        } catch (ParseError e) {
+            return FAIL;
+        }
+    }
+
     /**
      * opt parser
      * <p>
@@ -70,6 +102,52 @@ public interface Parser<T> {
         return Parsers.zeroOrMany(Parser.this);
     }
 
+    /**
+     * quantified repeat parser
+     * <p>
+     * like regex {@code x{min,max}y}, see {@link Parsers#repeat(Parser, int, int, Quantifier, Parser, BiFunction)}
+     */
+    default <U, R> Parser<R> repeat(
+            int min, int max, Quantifier quantifier, Parser<U> then, BiFunction<List<T>, U, R> merge) {
+        return Parsers.repeat(Parser.this, min, max, quantifier, then, merge);
+    }
+
+    /**
+     * fold repeat parser by times
+     * <p>
+     * like regex `{min.max}` without a list, see {@link Parsers#repeatFold(Parser, int, int, Object, BiFunction)}
+     */
+    default <R> Parser<R> repeatFold(int min, int max, R seed, BiFunction<R, ? super T, R> accumulator) {
+        return Parsers.repeatFold(Parser.this, min, max, seed, accumulator);
+    }
+
+    /**
+     * skip many parser
+     * <p>
+     * like regex `*`, discarding the values
+     */
+    default Parser<Void> skipMany() {
+        return Parsers.skipMany(Parser.this);
+    }
+
+    /**
+     * skip many parser
+     * <p>
+     * like regex `+`, discarding the values
+     */
+    default Parser<Void> skipMany1() {
+        return Parsers.skipMany1(Parser.this);
+    }
+
+    /**
+     * count parser
+     * <p>
+     * like regex `*`, the number of matches as value
+     */
+    default IntParser count() {
+        return Parsers.count(Parser.this);
+    }
+
     /**
      * or parser
      * <p>
@@ -80,6 +158,24 @@ public interface Parser<T> {
         return Parsers.or(Parser.this, other);
     }
 
+    /**
+     * memo parser
+     * <p>
+     * packrat memoization of this rule, see {@link Parsers#memo(Parser)}
+     */
+    default Parser<T> memo() {
+        return Parsers.memo(Parser.this);
+    }
+
+    /**
+     * commit parser
+     * <p>
+     * failure of this parser is a hard error, see {@link Parsers#commit(Parser)}
+     */
+    default Parser<T> commit() {
+        return Parsers.commit(Parser.this);
+    }
+
     /**
      * and parser
      */
@@ -1,51 +1,177 @@
 package lost.parser.combinator;
 
-import java.nio.BufferUnderflowException;
+import static lost.parser.combinator.Parser.ERROR;
+import static lost.parser.combinator.Parser.FAIL;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.DoubleFunction;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
 
 public class Parsers {
     private Parsers() {
         throw new Error("Can not instantiate me !!!");
     }
 
+    private static <T> Parser<T> of(Combinator<T> parser) {
+        return parser;
+    }
+
+    /**
+     * parse {@code input} from its position at the top level, moving the position after the match
+     *
+     * @return the sink holding the value
+     * @throws ParseError at the furthest failure
+     */
+    static Sink top_level(ParseAt parser, ByteBuffer input) {
+        var event = new ParseEvent();
+        event.begin();
+        var out = new Sink();
+        var end = parser.parseAt(Input.of(input), input.position(), out);
+        var error = end < 0 ? out.error(input.position()) : null;
+        out.release();
+        event.report(input.remaining(), error);
+        if (error != null) throw error;
+        input.position((int) end);
+        return out;
+    }
+
+    /**
+     * add the descriptions of an item expected at a failure to {@code names}, see {@link Sink#expected(long, Object)}
+     * <p>
+     * a parser as item, skipped by an {@link Or}, is described by what it expects first
+     */
+    static void expected_names(Object item, Set<String> names) {
+        switch (item) {
+            case Byte b -> names.add(quote(b & 0xFF));
+            case Character c -> names.add(quote(c));
+            case String s -> names.add('"' + s + '"');
+            case ByteClass c -> names.add(c.toString());
+            case B b -> names.add(quote(b.expect() & 0xFF));
+            case Ch c -> names.add(quote(c.expect()));
+            case Str s -> names.add('"' + s.str() + '"');
+            case ByteOf b -> names.add(quote(b.expect() & 0xFF));
+            case CharOf c -> names.add(quote(c.expect()));
+            case OneOf o -> names.add(o.accept().toString());
+            case End e -> names.add("end of input");
+            case Int32 i -> names.add("int32");
+            case Int64 i -> names.add("int64");
+            case Float64 f -> names.add("float64");
+            case CodePoint c -> names.add("code point");
+            case Regex r -> names.add('/' + r.pattern() + '/');
+            case Lexer.Token t -> names.add(t.name());
+            case Utf8Char c -> {
+                var cp = c.codePoint();
+                names.add(cp < 0x80 ? quote(cp) : String.format("U+%04X", cp));
+            }
+            case Named<?> n -> names.add(n.name());
+            case Or<?> or -> {
+                for (var parser : or.parsers()) expected_names(parser, names);
+            }
+            case And<?, ?, ?> and -> {
+                expected_names(and.a(), names);
+                if (Lookahead.nullable(and.a())) expected_names(and.b(), names);
+            }
+            case Opt<?> o -> expected_names(o.parser(), names);
+            case Repeat<?> r -> expected_names(r.parser(), names);
+            case ZeroOrMany<?> z -> expected_names(z.parser(), names);
+            case RepeatFold<?, ?> f -> expected_names(f.parser(), names);
+            case SkipMany s -> expected_names(s.parser(), names);
+            case Quantified<?, ?, ?> q -> {
+                expected_names(q.parser(), names);
+                if (q.min() == 0) expected_names(q.then(), names);
+            }
+            case Capture c -> expected_names(c.parser(), names);
+            case Commit<?> c -> expected_names(c.parser(), names);
+            case Memo<?> m -> expected_names(m.parser(), names);
+            case Boxed<?> b -> expected_names(b.parser(), names);
+            case BoxedDouble b -> expected_names(b.parser(), names);
+            case MapInt<?> m -> expected_names(m.parser(), names);
+            case MapLong<?> m -> expected_names(m.parser(), names);
+            case MapDouble<?> m -> expected_names(m.parser(), names);
+            case RepeatArray<?> r -> expected_names(r.parser(), names);
+            case RepeatFoldInts f -> expected_names(f.parser(), names);
+            case Count c -> expected_names(c.parser(), names);
+            case AnyChar c -> names.add("char");
+            case RepeatFoldLongs f -> expected_names(f.parser(), names);
+            default -> {
+                var first = Lookahead.first(item);
+                if (first != null && !Lookahead.nullable(item)) names.add(first.toString());
+            }
+        }
+    }
+
+    private static String quote(int c) {
+        if (c > 0x20 && c < 0x7F) return "'" + (char) c + "'";
+        return String.format(c > 0xFF ? "'\\u%04X'" : "'\\x%02X'", c);
+    }
+
     /**
      * end parser
      */
     public static Parser<Void> end() {
-        return Parsers::parser_end;
+        return new End();
+    }
+
+    record End() implements Combinator<Void>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parser_end(in, pos, out, this);
+        }
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.none();
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
     }
 
-    private static ParseResult<Void> parser_end(ByteBuffer input) {
-        if (input.hasRemaining()) throw new ParseError("parse end error");
-        return new ParseResult<>(null, input);
+    private static long parser_end(Input in, long pos, Sink out, End end) {
+        if (pos < in.limit() || in.more(pos + 1)) {
+            out.expected(pos, end);
+            return FAIL;
+        }
+        out.value = null;
+        return pos;
     }
 
     /**
      * skip whitespace parser
      */
     public static Parser<Void> skipWhitespaces() {
-        return Parsers::parse_skip_ws;
+        return of(Parsers::parse_skip_ws);
     }
 
-    private static ParseResult<Void> parse_skip_ws(ByteBuffer input) {
-
-        while (true) {
-            if (!input.hasRemaining()) break;
-            try {
-                if (!Character.isWhitespace(input.getChar())) {
-                    input.position(input.position() - 2);
-                    break;
-                }
-            } catch (BufferUnderflowException ignore) {
-                break;
-            }
-        }
-        return new ParseResult<>(null, input);
+    private static long parse_skip_ws(Input in, long pos, Sink out) {
+        out.value = null;
+        return Scan.skipWhitespaces(in, pos);
     }
 
     /**
@@ -56,22 +182,188 @@ public class Parsers {
      * @return
      */
     public static Parser<ByteBuffer> untilByte(Predicate<Byte> tester, boolean include) {
-        return input -> Parsers.parse_until_byte(input, tester, include);
+        return of((in, pos, out) -> Parsers.parse_until_byte(in, pos, out, tester, include, false));
+    }
+
+    /**
+     * until byte parser
+     * <p>
+     * like {@link #untilByte(Predicate, boolean)} with a span as value instead of a buffer slice
+     *
+     * @param tester  test fn
+     * @param include include until
+     */
+    public static Parser<Span> untilByteSpan(Predicate<Byte> tester, boolean include) {
+        return of((in, pos, out) -> Parsers.parse_until_byte(in, pos, out, tester, include, true));
     }
 
-    private static ParseResult<ByteBuffer> parse_until_byte(ByteBuffer input, Predicate<Byte> tester, boolean include) {
-        int begin = input.position();
+    private static long parse_until_byte(
+            Input in, long pos, Sink out, Predicate<Byte> tester, boolean include, boolean span) {
+        long end = pos;
 
-        while (true) {
-            if (!input.hasRemaining()) break;
-            if (tester.test(input.get())) {
-                if (!include) input.position(input.position() - 1);
+        while (in.has(end, 1)) {
+            if (tester.test(in.get(end++))) {
+                if (!include) end--;
                 break;
             }
         }
 
-        var value = input.slice(begin, input.position() - begin);
-        return new ParseResult<>(value, input);
+        out.value = span ? in.span(pos, end - pos) : in.slice(pos, end - pos);
+        return end;
+    }
+
+    /**
+     * until byte parser
+     *
+     * @param delimiters bytes to stop at
+     * @param include    include until
+     */
+    public static Parser<ByteBuffer> untilByte(ByteClass delimiters, boolean include) {
+        return of((in, pos, out) -> {
+            long end = Scan.until(in, pos, delimiters);
+            if (include && end < in.limit()) end++;
+            out.value = in.slice(pos, end - pos);
+            return end;
+        });
+    }
+
+    /**
+     * until byte parser
+     * <p>
+     * like {@link #untilByte(ByteClass, boolean)} with a span as value instead of a buffer slice
+     *
+     * @param delimiters bytes to stop at
+     * @param include    include until
+     */
+    public static Parser<Span> untilByteSpan(ByteClass delimiters, boolean include) {
+        return of((in, pos, out) -> {
+            long end = Scan.until(in, pos, delimiters);
+            if (include && end < in.limit()) end++;
+            out.value = in.span(pos, end - pos);
+            return end;
+        });
+    }
+
+    /**
+     * take while parser
+     * <p>
+     * like regex `[...]*`, the value is the slice of matched bytes
+     */
+    public static Parser<ByteBuffer> takeWhile(ByteClass accept) {
+        return new TakeWhile(accept, accept.negate());
+    }
+
+    record TakeWhile(ByteClass accept, ByteClass stop) implements Combinator<ByteBuffer>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            long end = Scan.until(in, pos, stop);
+            out.value = in.slice(pos, end - pos);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return accept;
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
+    }
+
+    /**
+     * take while parser
+     * <p>
+     * like {@link #takeWhile(ByteClass)} with a span as value instead of a buffer slice
+     */
+    public static Parser<Span> takeWhileSpan(ByteClass accept) {
+        return new TakeWhileSpan(accept, accept.negate());
+    }
+
+    record TakeWhileSpan(ByteClass accept, ByteClass stop) implements Combinator<Span>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            long end = Scan.until(in, pos, stop);
+            out.value = in.span(pos, end - pos);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return accept;
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
+    }
+
+    /**
+     * skip while parser
+     * <p>
+     * like {@link #takeWhile(ByteClass)} without a value
+     */
+    public static Parser<Void> skipWhile(ByteClass accept) {
+        return new SkipWhile(accept, accept.negate());
+    }
+
+    record SkipWhile(ByteClass accept, ByteClass stop) implements Combinator<Void>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            out.value = null;
+            return Scan.until(in, pos, stop);
+        }
+
+        @Override
+        public ByteClass first() {
+            return accept;
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
+    }
+
+    /**
+     * regex parser
+     * <p>
+     * like regex `...` matched at the position, the value is the span of the longest match. the pattern is compiled
+     * once to a minimized DFA over bytes, matching reads each byte once with a table lookup and never backtracks
+     * <p>
+     * supports literals, `.`, classes like `[a-z]` and `[^,]`, `\d \w \s \D \W \S \t \n \r \f \xHH`, groups, `|` and
+     * the greedy quantifiers `* + ? {n} {n,} {n,m}`. `.` and classes match one byte, a non-ASCII literal its UTF-8
+     * bytes. anchors, backreferences, lookarounds, lazy and possessive quantifiers aren't supported
+     *
+     * @throws IllegalArgumentException if the pattern is invalid or unsupported
+     */
+    public static Parser<Span> regex(String pattern) {
+        return new Regex(pattern, Dfa.of(List.of(RegexSyntax.parse(pattern))));
+    }
+
+    record Regex(String pattern, Dfa dfa) implements Combinator<Span>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = dfa.match(in, pos, out);
+            if (end < 0) {
+                out.expected(pos, this);
+                return FAIL;
+            }
+            out.value = in.span(pos, end - pos);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return dfa.first();
+        }
+
+        @Override
+        public boolean nullable() {
+            return dfa.nullable();
+        }
     }
 
     /**
@@ -82,96 +374,258 @@ public class Parsers {
      * @return
      */
     public static Parser<ByteBuffer> untilChar(Predicate<Character> tester, boolean include) {
-        return input -> Parsers.parse_until_char(input, tester, include);
+        return of((in, pos, out) -> Parsers.parse_until_char(in, pos, out, tester, include, false));
+    }
+
+    /**
+     * until char parser
+     * <p>
+     * like {@link #untilChar(Predicate, boolean)} with a span as value instead of a buffer slice
+     *
+     * @param tester  test fn
+     * @param include include until
+     */
+    public static Parser<Span> untilCharSpan(Predicate<Character> tester, boolean include) {
+        return of((in, pos, out) -> Parsers.parse_until_char(in, pos, out, tester, include, true));
     }
 
-    private static ParseResult<ByteBuffer> parse_until_char(
-            ByteBuffer input, Predicate<Character> tester, boolean include) {
-        int begin = input.position();
+    private static long parse_until_char(
+            Input in, long pos, Sink out, Predicate<Character> tester, boolean include, boolean span) {
+        long end = pos;
 
-        while (true) {
-            if (!input.hasRemaining()) break;
-            try {
-                if (tester.test(input.getChar())) {
-                    if (!include) input.position(input.position() - 2);
-                    break;
-                }
-            } catch (BufferUnderflowException e) {
-                input.position(begin);
-                throw new ParseError("parse until char error", e);
+        while (in.has(end, 1)) {
+            if (!in.has(end, 2)) {
+                out.expected(end, AnyChar.INSTANCE);
+                return FAIL;
+            }
+            var c = in.getChar(end);
+            end += 2;
+            if (tester.test(c)) {
+                if (!include) end -= 2;
+                break;
             }
         }
 
-        var value = input.slice(begin, input.position() - begin);
-        return new ParseResult<>(value, input);
+        out.value = span ? in.span(pos, end - pos) : in.slice(pos, end - pos);
+        return end;
+    }
+
+    /**
+     * until UTF-8 code point parser
+     * <p>
+     * like {@link #untilCharSpan(Predicate, boolean)} decoding UTF-8 in place, fails on a malformed sequence before
+     * the stop. the value is a span, {@link Span#decode} it if a string is needed
+     *
+     * @param tester  test fn
+     * @param include include until
+     */
+    public static Parser<Span> untilCodePoint(IntPredicate tester, boolean include) {
+        var stops = Utf8.stops(tester);
+        return of((in, pos, out) -> {
+            long end = Utf8.until(in, pos, out, stops, tester);
+            if (end < 0) return FAIL;
+            if (include && in.has(end, 1)) end = Utf8.decode(in, end, out);
+            out.value = in.span(pos, end - pos);
+            return end;
+        });
+    }
+
+    /**
+     * skip UTF-8 whitespace parser
+     * <p>
+     * like {@link #skipWhitespaces()} for UTF-8 input, skipping the code points of {@link Character#isWhitespace(int)}
+     */
+    public static Parser<Void> skipUtf8Whitespace() {
+        return of((in, pos, out) -> {
+            long end = Utf8.skipWhitespace(in, pos, out);
+            out.value = null;
+            return end;
+        });
     }
 
     /**
      * a byte parser
      */
     public static Parser<Byte> b(byte expect) {
-        return input -> parse_a_byte(input, expect);
+        return new B(expect, expect);
     }
 
-    private static ParseResult<Byte> parse_a_byte(ByteBuffer input, byte expect) {
-        int begin = input.position();
+    record B(byte expect, Byte value) implements Combinator<Byte>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_a_byte(in, pos, out, expect, value);
+        }
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.of(expect);
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
 
-        if (!input.hasRemaining()) throw new ParseError("parse a byte error: end");
-        var actual = input.get();
-        if (expect != actual) {
-            input.position(begin);
-            throw new ParseError("parse a byte error: expect " + expect + " but got " + actual);
+    private static long parse_a_byte(Input in, long pos, Sink out, byte expect, Byte value) {
+        if (!in.has(pos, 1) || in.get(pos) != expect) {
+            out.expected(pos, value);
+            return FAIL;
         }
-        return new ParseResult<>(expect, input);
+        out.value = value;
+        return pos + 1;
     }
 
     /**
      * a char parser
      */
     public static Parser<Character> ch(char expect) {
-        return input -> parse_a_char(input, expect);
+        return new Ch(expect, expect);
     }
 
-    private static ParseResult<Character> parse_a_char(ByteBuffer input, char expect) {
-        int begin = input.position();
+    record Ch(char expect, Character value) implements Combinator<Character>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_a_char(in, pos, out, expect, value);
+        }
 
-        if (!input.hasRemaining()) throw new ParseError("parse a char error: end");
-        char actual;
-        try {
-            actual = input.getChar();
-        } catch (BufferUnderflowException e) {
-            throw new ParseError("parse a char error", e);
+        @Override
+        public ByteClass first() {
+            return first_of_char(expect);
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * both bytes of a char, since the byte order is only known from the input
+     */
+    private static ByteClass first_of_char(char c) {
+        return ByteClass.of((byte) (c >>> 8), (byte) c);
+    }
+
+    private static long parse_a_char(Input in, long pos, Sink out, char expect, Character value) {
+        if (!in.has(pos, 2) || in.getChar(pos) != expect) {
+            out.expected(pos, value);
+            return FAIL;
+        }
+        out.value = value;
+        return pos + 2;
+    }
+
+    /**
+     * UTF-8 code point parser without boxing
+     * <p>
+     * decodes one code point in place into {@link Sink#longValue()}, failing on a malformed, overlong or truncated
+     * sequence and on surrogates
+     */
+    public static IntParser codePoint() {
+        return CodePoint.INSTANCE;
+    }
+
+    record CodePoint() implements IntParser, Lookahead {
+        static final CodePoint INSTANCE = new CodePoint();
+
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = Utf8.decode(in, pos, out);
+            if (end < 0) out.expected(pos, this);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Utf8.LEADS;
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * a UTF-8 char parser
+     * <p>
+     * like {@link #ch(char)} for UTF-8 input, matching the encoded bytes of {@code codePoint} without decoding
+     */
+    public static Parser<Integer> utf8Char(int codePoint) {
+        return new Utf8Char(codePoint, Utf8.encode(codePoint), codePoint);
+    }
+
+    record Utf8Char(int codePoint, byte[] expect, Integer value) implements Combinator<Integer>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            int len = expect.length;
+            if (!in.has(pos, len)) {
+                out.expected(pos, this);
+                return FAIL;
+            }
+            for (int i = 0; i < len; i++) {
+                if (in.get(pos + i) != expect[i]) {
+                    out.expected(pos, this);
+                    return FAIL;
+                }
+            }
+            out.value = value;
+            return pos + len;
         }
-        if (expect != actual) {
-            input.position(begin);
-            throw new ParseError("parse a char error: expect " + expect + " but got " + actual);
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.of(expect[0]);
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
         }
-        return new ParseResult<>(expect, input);
     }
 
     /**
      * a string parser
      */
     public static Parser<String> str(String expect) {
-        return input -> parse_str(input, expect);
+        return new Str(expect, expect.getBytes());
     }
 
-    private static ParseResult<String> parse_str(ByteBuffer input, String str) {
-        var begin = input.position();
+    record Str(String str, byte[] expect) implements Combinator<String>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_str(in, pos, out, str, expect);
+        }
+
+        @Override
+        public ByteClass first() {
+            return expect.length == 0 ? ByteClass.none() : ByteClass.of(expect[0]);
+        }
+
+        @Override
+        public boolean nullable() {
+            return expect.length == 0;
+        }
+    }
 
-        var expect = str.getBytes();
+    private static long parse_str(Input in, long pos, Sink out, String str, byte[] expect) {
         int len = expect.length;
 
-        if (input.remaining() < len) throw new ParseError("parse str error");
+        if (!in.has(pos, len)) {
+            out.expected(pos, str);
+            return FAIL;
+        }
 
-        for (byte b : expect) {
-            if (input.get() != b) {
-                input.position(begin);
-                throw new ParseError("parse str error");
+        for (int i = 0; i < len; i++) {
+            if (in.get(pos + i) != expect[i]) {
+                out.expected(pos, str);
+                return FAIL;
             }
         }
 
-        return new ParseResult<>(str, input);
+        out.value = str;
+        return pos + len;
     }
 
     /**
@@ -180,16 +634,36 @@ public class Parsers {
      * like regex `?`
      */
     public static <T> Parser<Optional<T>> opt(Parser<T> parser) {
-        return input -> parse_opt(parser, input);
+        return new Opt<>(parser);
     }
 
-    private static <T> ParseResult<Optional<T>> parse_opt(Parser<T> parser, ByteBuffer input) {
-        try {
-            var r = parser.parse(input);
-            return new ParseResult<>(Optional.of(r.value()), r.rest());
-        } catch (ParseError ignore) {
-            return new ParseResult<>(Optional.empty(), input);
+    record Opt<T>(Parser<T> parser) implements Combinator<Optional<T>>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_opt(parser, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
+    }
+
+    private static <T> long parse_opt(Parser<T> parser, Input in, long pos, Sink out) {
+        var end = parser.parseAt(in, pos, out);
+        if (end == FAIL) {
+            if (pos < out.cut) return ERROR;
+            out.value = Optional.empty();
+            return pos;
         }
+        if (end < 0) return end;
+        out.value = Optional.of(out.value);
+        return end;
     }
 
     /**
@@ -201,10 +675,26 @@ public class Parsers {
      * @param max max times
      */
     public static <T> Parser<List<T>> repeat(Parser<T> parser, int min, int max) {
-        if (!(min > 0)) throw new IllegalArgumentException("`times` requires > 0");
-        if (!(max >= min)) throw new IllegalArgumentException("requires `max` >= `min`");
+        check_repeat_times(min, max);
 
-        return input -> parse_repeat(parser, min, max, input);
+        return new Repeat<>(parser, min, max);
+    }
+
+    record Repeat<T>(Parser<T> parser, int min, int max) implements Combinator<List<T>>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_repeat(parser, min, max, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
     }
 
     /**
@@ -229,26 +719,155 @@ public class Parsers {
         return repeat(parser, times, times);
     }
 
-    private static <T> ParseResult<List<T>> parse_repeat(Parser<T> parser, int min, int max, ByteBuffer input) {
-        int begin = input.position();
+    /**
+     * the loop of {@link #repeat}, {@link #oneOrMany} and {@link #zeroOrMany}: every element is parsed once, the list
+     * is only allocated on the first match
+     */
+    private static <T> long parse_repeat(Parser<T> parser, int min, int max, Input in, long pos, Sink out) {
+        ArrayList<T> values = null;
+        int n = 0;
+
+        while (n < max) {
+            var end = parser.parseAt(in, pos, out);
+            if (end == FAIL) {
+                if (pos < out.cut) return ERROR;
+                break;
+            }
+            if (end < 0) return end;
+            if (values == null) values = new ArrayList<>(Math.max(min, 8));
+            values.add(out.value());
+            n++;
+            // more empty matches would be the same, only as many as required
+            if (end == pos && n >= min) break;
+            pos = end;
+        }
+
+        if (n < min) return FAIL;
 
-        var values = new ArrayList<T>(min);
-        var rest = input;
+        out.value = values == null ? List.of() : values;
+        return pos;
+    }
 
-        try {
-            for (int i = 0; i < max; i++) {
-                var result = parser.parse(rest);
-                rest = result.rest();
-                values.add(result.value());
+    /**
+     * quantified repeat parser
+     * <p>
+     * like regex {@code x{min,max}y} with a quantifier: {@code parser} repeated, followed by {@code then}, giving back
+     * or taking more repetitions as {@code quantifier} says until {@code then} matches, e.g.
+     * {@code repeat(anyByte().boxed(), 0, Integer.MAX_VALUE, Quantifier.LAZY, str("-->"), (text, end) -> text)}
+     *
+     * @param min   min times, may be 0
+     * @param max   max times
+     * @param merge value of the repetitions and of {@code then}
+     */
+    public static <T, U, R> Parser<R> repeat(
+            Parser<T> parser,
+            int min,
+            int max,
+            Quantifier quantifier,
+            Parser<U> then,
+            BiFunction<List<T>, U, R> merge) {
+        check_fold_times(min, max);
+        return new Quantified<>(parser, min, max, Objects.requireNonNull(quantifier), then, merge);
+    }
+
+    record Quantified<T, U, R>(
+            Parser<T> parser,
+            int min,
+            int max,
+            Quantifier quantifier,
+            Parser<U> then,
+            BiFunction<List<T>, U, R> merge)
+            implements Combinator<R> {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return switch (quantifier) {
+                case POSSESSIVE -> parse_possessive(this, in, pos, out);
+                case GREEDY -> parse_greedy(this, in, pos, out);
+                case LAZY -> parse_lazy(this, in, pos, out);
+            };
+        }
+    }
+
+    private static <T, U, R> long parse_possessive(Quantified<T, U, R> q, Input in, long pos, Sink out) {
+        var end = parse_repeat(q.parser(), q.min(), q.max(), in, pos, out);
+        if (end < 0) return end;
+        List<T> values = out.value();
+        return parse_then(q, values, in, end, out);
+    }
+
+    private static <T, U, R> long parse_then(Quantified<T, U, R> q, List<T> values, Input in, long pos, Sink out) {
+        var end = q.then().parseAt(in, pos, out);
+        if (end < 0) return end;
+        out.value = q.merge().apply(values, out.value());
+        return end;
+    }
+
+    private static <T, U, R> long parse_greedy(Quantified<T, U, R> q, Input in, long pos, Sink out) {
+        var values = new ArrayList<T>();
+        // ends[i] is the position after i elements, to give back to
+        var ends = new long[16];
+        ends[0] = pos;
+        int n = 0;
+
+        while (n < q.max()) {
+            var end = q.parser().parseAt(in, pos, out);
+            if (end == FAIL) {
+                if (pos < out.cut) return ERROR;
+                break;
             }
-        } catch (ParseError e) {
-            if (values.size() < min) {
-                input.position(begin);
-                throw new ParseError("parse repeat error", e);
+            if (end < 0) return end;
+            values.add(out.value());
+            n++;
+            if (n == ends.length) ends = Arrays.copyOf(ends, n << 1);
+            ends[n] = end;
+            if (end == pos && n >= q.min()) break;
+            pos = end;
+        }
+        if (n < q.min()) return FAIL;
+
+        while (true) {
+            pos = ends[n];
+            var end = q.then().parseAt(in, pos, out);
+            if (end >= 0) {
+                out.value = q.merge().apply(values, out.value());
+                return end;
             }
+            if (end != FAIL) return end;
+            if (n == q.min()) return FAIL;
+            if (ends[n - 1] < out.cut) return ERROR;
+            values.remove(--n);
         }
+    }
+
+    private static <T, U, R> long parse_lazy(Quantified<T, U, R> q, Input in, long pos, Sink out) {
+        ArrayList<T> values = null;
+        int n = 0;
+
+        while (true) {
+            if (n >= q.min()) {
+                var end = q.then().parseAt(in, pos, out);
+                if (end >= 0) {
+                    out.value = q.merge().apply(values == null ? List.of() : values, out.value());
+                    return end;
+                }
+                if (end != FAIL) return end;
+                if (pos < out.cut) return ERROR;
+            }
+            if (n == q.max()) return FAIL;
 
-        return new ParseResult<>(values, rest);
+            var end = q.parser().parseAt(in, pos, out);
+            if (end == FAIL) {
+                if (pos < out.cut) return ERROR;
+                return FAIL;
+            }
+            if (end < 0) return end;
+            // taking more empty matches wouldn't change what follows
+            if (end == pos && n >= q.min()) return FAIL;
+            if (values == null) values = new ArrayList<>();
+            values.add(out.value());
+            n++;
+            pos = end;
+        }
     }
 
     /**
@@ -266,65 +885,1451 @@ public class Parsers {
      * like regex `*`
      */
     public static <T> Parser<List<T>> zeroOrMany(Parser<T> parser) {
-        return input -> parse_zero_or_many(parser, input);
+        return new ZeroOrMany<>(parser);
     }
 
-    private static <T> ParseResult<List<T>> parse_zero_or_many(Parser<T> parser, ByteBuffer input) {
-        int begin = input.position();
-        try {
-            var result = opt(parser).parse(input);
-            if (result.value().isEmpty()) return new ParseResult<>(List.of(), result.rest());
-            input.position(begin);
-            return repeat(parser, 1).parse(input);
-        } catch (ParseError e) {
-            input.position(begin);
-            throw new ParseError("parse zeroOrMany error", e);
+    record ZeroOrMany<T>(Parser<T> parser) implements Combinator<List<T>>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_repeat(parser, 0, Integer.MAX_VALUE, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
         }
     }
 
     /**
-     * or parser
+     * fold repeat parser by times
      * <p>
-     * like regex `|`
+     * like regex `{min.max}`, folding the values into one from {@code seed} instead of collecting a list, e.g. a sum.
+     * the seed is shared by every parse, so it should be immutable
+     *
+     * @param min min times, may be 0
+     * @param max max times
      */
-    public static <T> Parser<T> or(Parser<T>... parsers) {
-        return input -> parse_or(input, parsers);
+    public static <T, R> Parser<R> repeatFold(
+            Parser<T> parser, int min, int max, R seed, BiFunction<R, ? super T, R> accumulator) {
+        check_fold_times(min, max);
+        return new RepeatFold<>(parser, min, max, seed, accumulator);
     }
 
-    private static <T> ParseResult<T> parse_or(ByteBuffer input, Parser<T>... parsers) {
-        int begin = input.position();
+    record RepeatFold<T, R>(Parser<T> parser, int min, int max, R seed, BiFunction<R, ? super T, R> accumulator)
+            implements Combinator<R>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var acc = seed;
+            int n = 0;
 
-        for (Parser<T> parser : parsers) {
-            try {
-                return parser.parse(input);
-            } catch (ParseError ignore) {
-                input.position(begin);
-            }
+            while (n < max) {
+                var end = parser.parseAt(in, pos, out);
+                if (end == FAIL) {
+                    if (pos < out.cut) return ERROR;
+                    break;
+                }
+                if (end < 0) return end;
+                acc = accumulator.apply(acc, out.value());
+                n++;
+                // more empty matches would be the same, only as many as required
+                if (end == pos && n >= min) break;
+                pos = end;
+            }
+
+            if (n < min) return FAIL;
+
+            out.value = acc;
+            return pos;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return min == 0 || Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * skip many parser
+     * <p>
+     * like regex `*`, discarding the values, e.g. separators or comments
+     */
+    public static Parser<Void> skipMany(Parser<?> parser) {
+        return new SkipMany(parser, 0);
+    }
+
+    /**
+     * skip many parser
+     * <p>
+     * like regex `+`, discarding the values
+     */
+    public static Parser<Void> skipMany1(Parser<?> parser) {
+        return new SkipMany(parser, 1);
+    }
+
+    record SkipMany(Parser<?> parser, int min) implements Combinator<Void>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parse_count(parser, min, in, pos, out);
+            if (end >= 0) out.value = null;
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return min == 0 || Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * count parser
+     * <p>
+     * like regex `*`, the number of matches as value, discarding theirs
+     */
+    public static IntParser count(Parser<?> parser) {
+        return new Count(parser);
+    }
+
+    record Count(Parser<?> parser) implements IntParser, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_count(parser, 0, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
+    }
+
+    /**
+     * match {@code parser} as often as possible, at least {@code min} times, the count goes to {@link Sink#longValue}
+     */
+    private static long parse_count(Parser<?> parser, int min, Input in, long pos, Sink out) {
+        long n = 0;
+
+        while (true) {
+            var end = parser.parseAt(in, pos, out);
+            if (end == FAIL) {
+                if (pos < out.cut) return ERROR;
+                break;
+            }
+            if (end < 0) return end;
+            n++;
+            // an empty match would repeat forever
+            if (end == pos) break;
+            pos = end;
+        }
+
+        if (n < min) return FAIL;
+
+        out.longValue = n;
+        return pos;
+    }
+
+    private static void check_fold_times(int min, int max) {
+        if (!(min >= 0)) throw new IllegalArgumentException("requires `min` >= 0");
+        if (!(max >= min)) throw new IllegalArgumentException("requires `max` >= `min`");
+    }
+
+    /**
+     * or parser
+     * <p>
+     * like regex `|`
+     * <p>
+     * alternatives are tried in order, but only those whose FIRST set admits the next byte,
+     * see {@link #dispatch_table}
+     */
+    @SafeVarargs
+    public static <T> Parser<T> or(Parser<T>... parsers) {
+        // copied by element: the varargs array itself never escapes, which keeps @SafeVarargs sound
+        @SuppressWarnings("unchecked")
+        var alternatives = (Parser<T>[]) new Parser<?>[parsers.length];
+        for (int i = 0; i < parsers.length; i++) alternatives[i] = parsers[i];
+        return new Or<>(alternatives, dispatch_table(alternatives));
+    }
+
+    /**
+     * @param dispatch alternatives to try by next unsigned byte, index 256 for the end of input
+     */
+    record Or<T>(Parser<T>[] parsers, Parser<?>[][] dispatch) implements Combinator<T>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var next = in.has(pos, 1) ? in.get(pos) & 0xFF : 256;
+            var end = parse_or(in, pos, out, dispatch[next]);
+            if (end == FAIL) expectSkipped(next, pos, out);
+            return end;
+        }
+
+        /**
+         * the alternatives skipped by the {@code next} byte fail at {@code pos} too, expecting what they start with
+         */
+        void expectSkipped(int next, long pos, Sink out) {
+            var alternatives = dispatch[next];
+            if (alternatives.length == parsers.length || pos < out.furthest) return;
+            for (int i = 0, j = 0; i < parsers.length; i++) {
+                if (j < alternatives.length && alternatives[j] == parsers[i]) j++;
+                else out.expected(pos, parsers[i]);
+            }
+        }
+
+        @Override
+        public ByteClass first() {
+            var first = ByteClass.none();
+            for (var parser : parsers) {
+                var f = Lookahead.first(parser);
+                if (f == null) return null;
+                first = first.union(f);
+            }
+            return first;
+        }
+
+        @Override
+        public boolean nullable() {
+            for (var parser : parsers) {
+                if (Lookahead.nullable(parser)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * first-byte jump table of an or parser
+     * <p>
+     * for every next byte, keep in order the alternatives that are nullable, have an unknown FIRST set or can start
+     * with that byte, the others would fail anyway, so PEG semantics are unchanged
+     */
+    private static Parser<?>[][] dispatch_table(Parser<?>[] parsers) {
+        int n = parsers.length;
+        var firsts = new ByteClass[n];
+        var always = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            firsts[i] = Lookahead.first(parsers[i]);
+            always[i] = firsts[i] == null || Lookahead.nullable(parsers[i]);
+        }
+
+        var table = new Parser<?>[257][];
+        var candidates = new ArrayList<Parser<?>>(n);
+        for (int next = 0; next <= 256; next++) {
+            candidates.clear();
+            for (int i = 0; i < n; i++) {
+                if (always[i] || (next < 256 && firsts[i].contains(next))) candidates.add(parsers[i]);
+            }
+            var alternatives = candidates.toArray(new Parser<?>[0]);
+            // share equal rows, most bytes select the same alternatives
+            for (int prev = 0; prev < next; prev++) {
+                if (Arrays.equals(table[prev], alternatives)) {
+                    alternatives = table[prev];
+                    break;
+                }
+            }
+            table[next] = alternatives;
         }
+        return table;
+    }
 
-        input.position(begin);
-        throw new ParseError("parse or error");
+    private static long parse_or(Input in, long pos, Sink out, Parser<?>... parsers) {
+        for (int i = 0; i < parsers.length; i++) {
+            if (i > 0 && pos < out.cut) return ERROR;
+            var end = parsers[i].parseAt(in, pos, out);
+            if (end != FAIL) return end;
+        }
+        return FAIL;
     }
 
     /**
      * and parser
      */
     public static <A, B, C> Parser<C> and(Parser<A> a, Parser<B> b, BiFunction<A, B, C> merge) {
-        return input -> parse_and(a, b, merge, input);
+        return new And<>(a, b, merge);
+    }
+
+    record And<A, B, C>(Parser<A> a, Parser<B> b, BiFunction<A, B, C> merge) implements Combinator<C>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_and(a, b, merge, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            var first = Lookahead.first(a);
+            if (first == null || !Lookahead.nullable(a)) return first;
+            var next = Lookahead.first(b);
+            return next == null ? null : first.union(next);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(a) && Lookahead.nullable(b);
+        }
+    }
+
+    private static <A, B, C> long parse_and(
+            Parser<A> a, Parser<B> b, BiFunction<A, B, C> merge, Input in, long pos, Sink out) {
+        var a_end = a.parseAt(in, pos, out);
+        if (a_end < 0) return a_end;
+        A a_value = out.value();
+        var b_end = b.parseAt(in, a_end, out);
+        if (b_end < 0) return b_end;
+        B b_value = out.value();
+        out.value = merge.apply(a_value, b_value);
+        return b_end;
+    }
+
+    /**
+     * capture parser
+     * <p>
+     * the span of input matched by {@code parser} as value, e.g. the text of a whole number or key
+     */
+    public static Parser<Span> capture(Parser<?> parser) {
+        return new Capture(parser);
+    }
+
+    record Capture(Parser<?> parser) implements Combinator<Span>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            if (end < 0) return end;
+            out.value = in.span(pos, end - pos);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * cut parser
+     * <p>
+     * matches empty and commits to everything parsed so far: pending alternatives are pruned and a later failure that
+     * would resume before the cut is a hard {@link Parser#ERROR}. memo entries before the cut are discarded first.
+     * e.g. {@code or(and(str("if"), and(cut(), ifRest), ...), ...)}
+     */
+    public static Parser<Void> cut() {
+        return CUT;
+    }
+
+    private static final Parser<Void> CUT = new Cut();
+
+    record Cut() implements Combinator<Void>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            if (pos > out.cut) out.cut = pos;
+            out.value = null;
+            return pos;
+        }
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.none();
+        }
+
+        @Override
+        public boolean nullable() {
+            return true;
+        }
+    }
+
+    /**
+     * commit parser
+     * <p>
+     * failure of {@code parser} is a hard {@link Parser#ERROR}, failing the whole parse without trying the pending
+     * alternatives, e.g. {@code and(str("if"), commit(ifRest), ...)}
+     */
+    public static <T> Parser<T> commit(Parser<T> parser) {
+        return new Commit<>(parser);
     }
 
-    private static <A, B, C> ParseResult<C> parse_and(
-            Parser<A> a, Parser<B> b, BiFunction<A, B, C> merge, ByteBuffer input) {
-        int begin = input.position();
+    /**
+     * not a {@link Lookahead}: skipping it by the next byte would turn its hard error into a plain failure
+     */
+    record Commit<T>(Parser<T> parser) implements Combinator<T> {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            return end == FAIL ? ERROR : end;
+        }
+    }
+
+    /**
+     * named parser
+     * <p>
+     * a rule counted by name inside {@link #profile(Parser)}, e.g. each alternative of a slow {@code or}.
+     * the same name in several places adds up. slow rules are also recorded as flight recorder events
+     * {@code lost.parser.combinator.Rule}, disabled by default.
+     * a failure of the whole rule is reported as expecting {@code name}, see {@link ParseError#expected()}
+     */
+    public static <T> Parser<T> named(String name, Parser<T> parser) {
+        return new Named<>(Objects.requireNonNull(name), parser);
+    }
+
+    record Named<T>(String name, Parser<T> parser) implements Combinator<T>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var event = RuleEvent.enabled() ? new RuleEvent() : null;
+            if (event != null) event.begin();
+            // failures at `pos` from here on are this rule's
+            int mark = out.furthest == pos ? out.expectedCount : 0;
+            var profiler = out.profiler;
+            var end = profiler == null ? parser.parseAt(in, pos, out) : profiler.parseAt(name, parser, in, pos, out);
+            if (end == FAIL) out.expected(pos, mark, this);
+            if (event != null) event.report(name, pos, end);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * profile parser
+     * <p>
+     * count the {@link #named} rules of {@code parser} into the returned profiler, which parses like {@code parser}
+     */
+    public static <T> Profiler<T> profile(Parser<T> parser) {
+        return new Profiler<>(parser);
+    }
+
+    /**
+     * memo parser
+     * <p>
+     * cache the outcome of {@code parser} by position in a per-parse memo table, so backtracking into it again at
+     * the same position costs a lookup. cached values are shared between hits.
+     * the table is bounded, see {@link #packrat(Parser, long)}
+     */
+    public static <T> Parser<T> memo(Parser<T> parser) {
+        if (parser instanceof Memo<T>) return parser;
+        return new Memo<>(parser, MEMO_RULES.getAndIncrement());
+    }
+
+    static final AtomicInteger MEMO_RULES = new AtomicInteger();
+
+    record Memo<T>(Parser<T> parser, int rule) implements Combinator<T>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_memo(parser, rule, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    private static long parse_memo(Parser<?> parser, int rule, Input in, long pos, Sink out) {
+        var memo = out.memo(in);
+        int slot = memo.find(rule, pos, out.generation);
+        if (slot >= 0) return memo.restore(slot, out);
+
+        int saved = out.headDepth;
+        long furthest = out.furthest;
+        int expectedCount = out.expectedCount;
+        out.headDepth = Integer.MAX_VALUE;
+        var end = parser.parseAt(in, pos, out);
+        int head = out.headDepth;
+        out.headDepth = Math.min(saved, head);
+        // don't keep a result grown from the seed of a left-recursive rule still in progress
+        if (head > (out.rules == null ? 0 : out.rules.depth)) {
+            memo.store(rule, pos, out.generation, end, out, furthest, expectedCount);
+        }
+        return end;
+    }
+
+    /**
+     * recursive rule
+     * <p>
+     * a forward reference to {@link Rule#define} later, supporting left recursion
+     */
+    public static <T> Rule<T> rule() {
+        return new Rule<>();
+    }
+
+    /**
+     * packrat parser
+     * <p>
+     * memoize every or, and, opt and repeat of the grammar, bounding the memo table to the default memory cap
+     * ({@code -Dlost.parser.combinator.memo.maxBytes}, 8 MiB)
+     */
+    public static <T> Parser<T> packrat(Parser<T> parser) {
+        return packrat(parser, MemoTable.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * packrat parser
+     * <p>
+     * memoize every or, and, opt and repeat of the grammar, with a memo table of at most {@code maxMemoryBytes}.
+     * when full, entries at lower positions are evicted first. tables are pooled per thread: each thread that parsed
+     * keeps one table of up to {@code maxMemoryBytes} allocated, without the values of finished parses
+     *
+     * @param maxMemoryBytes memory cap of the memo table
+     */
+    public static <T> Parser<T> packrat(Parser<T> parser, long maxMemoryBytes) {
+        return new MemoScope<>(memoize_all(parser, new IdentityHashMap<>()), MemoTable.capacity(maxMemoryBytes));
+    }
+
+    /**
+     * run {@code parser} with a memo table of {@code capacity} entries
+     */
+    record MemoScope<T>(Parser<T> parser, int capacity) implements Combinator<T>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var memo = out.memo;
+            if (memo != null && memo.capacity() == capacity && out.memoInput == in) return parser.parseAt(in, pos, out);
+
+            var memoInput = out.memoInput;
+            var generation = out.generation;
+            var table = MemoTable.local(capacity);
+            out.memo = table;
+            out.memoInput = in;
+            out.generation = table.nextGeneration();
+            try {
+                return parser.parseAt(in, pos, out);
+            } finally {
+                table.clear(out.generation);
+                out.memo = memo;
+                out.memoInput = memoInput;
+                out.generation = generation;
+            }
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * rebuild the grammar with a memo around every composite node, shared nodes stay shared
+     */
+    private static <T> Parser<T> memoize_all(Parser<T> parser, Map<Parser<?>, Parser<?>> done) {
+        var memoized = done.get(parser);
+        if (memoized != null) return same_type(memoized);
+
+        Parser<?> result =
+                switch (parser) {
+                    case Or<?> or -> memo(or(memoize_all(or.parsers(), done)));
+                    case And<?, ?, ?> and -> memo(memoize_and(and, done));
+                    case Opt<?> opt -> memo(opt(memoize_all(opt.parser(), done)));
+                    case Repeat<?> repeat -> memo(
+                            new Repeat<>(memoize_all(repeat.parser(), done), repeat.min(), repeat.max()));
+                    case ZeroOrMany<?> many -> memo(zeroOrMany(memoize_all(many.parser(), done)));
+                    case RepeatFold<?, ?> fold -> memo(memoize_fold(fold, done));
+                    case SkipMany skip -> memo(new SkipMany(memoize_all(skip.parser(), done), skip.min()));
+                    case Quantified<?, ?, ?> q -> memo(memoize_quantified(q, done));
+                    case Commit<?> commit -> commit(memoize_all(commit.parser(), done));
+                    case Capture capture -> capture(memoize_all(capture.parser(), done));
+                    case Named<?> named -> named(named.name(), memoize_all(named.parser(), done));
+                    case Rule<?> rule -> memoize_rule(rule, done);
+                    default -> parser;
+                };
+        done.put(parser, result);
+        return same_type(result);
+    }
+
+    /**
+     * a node rebuilt by {@link #memoize_all} has the type of the original
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Parser<T> same_type(Parser<?> rebuilt) {
+        return (Parser<T>) rebuilt;
+    }
+
+    private static <T> Parser<T>[] memoize_all(Parser<T>[] parsers, Map<Parser<?>, Parser<?>> done) {
+        var memoized = parsers.clone();
+        for (int i = 0; i < memoized.length; i++) memoized[i] = memoize_all(parsers[i], done);
+        return memoized;
+    }
+
+    private static <T> Parser<T> memoize_rule(Rule<T> rule, Map<Parser<?>, Parser<?>> done) {
+        // rules memoize themselves, only their bodies need rebuilding
+        var copy = Parsers.<T>rule();
+        done.put(rule, copy);
+        return rule.parser() == null ? rule : copy.define(memoize_all(rule.parser(), done));
+    }
+
+    private static <A, B, C> Parser<C> memoize_and(And<A, B, C> and, Map<Parser<?>, Parser<?>> done) {
+        return and(memoize_all(and.a(), done), memoize_all(and.b(), done), and.merge());
+    }
+
+    private static <T, R> Parser<R> memoize_fold(RepeatFold<T, R> fold, Map<Parser<?>, Parser<?>> done) {
+        return new RepeatFold<>(
+                memoize_all(fold.parser(), done), fold.min(), fold.max(), fold.seed(), fold.accumulator());
+    }
+
+    private static <T, U, R> Parser<R> memoize_quantified(Quantified<T, U, R> q, Map<Parser<?>, Parser<?>> done) {
+        return new Quantified<>(
+                memoize_all(q.parser(), done),
+                q.min(),
+                q.max(),
+                q.quantifier(),
+                memoize_all(q.then(), done),
+                q.merge());
+    }
+
+    /**
+     * parse a segment, e.g. off-heap or mapped memory larger than 2 GB, from offset 0
+     *
+     * @return the value
+     * @throws ParseError on failure
+     */
+    public static <T> T parse(Parser<T> parser, MemorySegment input) {
+        return parse_input(parser, Input.of(input));
+    }
+
+    /**
+     * parse a file, mapped into memory instead of read into a heap buffer
+     * <p>
+     * the whole file is one mapping, larger than 2 GB too, read ahead of the parse by windows of
+     * {@code -Dlost.parser.combinator.readAhead.windowBytes} (32 MiB). the mapping is released once the value and its
+     * slices are unreachable
+     *
+     * @return the value
+     * @throws ParseError on failure
+     */
+    public static <T> T parseFile(Path path, Parser<T> parser) throws IOException {
+        return parseFile(path, parser, ReadAhead.WINDOW);
+    }
 
+    static <T> T parseFile(Path path, Parser<T> parser, long window) throws IOException {
+        MemorySegment segment;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+        }
+        return parse_input(parser, new ReadAhead(segment, ByteOrder.BIG_ENDIAN, window).input());
+    }
+
+    /**
+     * parse a token stream, see {@link Lexer}
+     *
+     * @return the value
+     * @throws ParseError on failure, at the source offset of the token
+     */
+    public static <T> T parse(Parser<T> parser, Tokens tokens) {
         try {
-            var a_result = a.parse(input);
-            var b_result = b.parse(a_result.rest());
-            var c_result = merge.apply(a_result.value(), b_result.value());
-            return new ParseResult<>(c_result, b_result.rest());
+            return parse_input(parser, tokens.input());
         } catch (ParseError e) {
-            input.position(begin);
-            throw new ParseError("parse and error", e);
+            if (e.offset() < 0) throw e;
+            throw new ParseError(tokens.offset(e.offset()), e.expected());
+        }
+    }
+
+    private static <T> T parse_input(Parser<T> parser, Input in) {
+        var event = new ParseEvent();
+        event.begin();
+        var out = new Sink();
+        var error = parser.parseAt(in, 0, out) < 0 ? out.error(0) : null;
+        out.release();
+        event.report(in.limit(), error);
+        if (error != null) throw error;
+        return out.value();
+    }
+
+    /**
+     * parallel records parser
+     * <p>
+     * parse the delimiter-separated records from the position to the limit of {@code input} in parallel on the
+     * common {@link java.util.concurrent.ForkJoinPool}, each record must be matched whole by {@code record}
+     *
+     * @param delimiters record delimiters, e.g. {@code ByteClass.of("\n")}
+     * @return the values in input order
+     * @throws ParseError on a record failing to parse
+     */
+    public static <T> List<T> parallelRecords(ByteBuffer input, ByteClass delimiters, Parser<T> record) {
+        return parallelRecords(input, delimiters, record, Collectors.toList());
+    }
+
+    /**
+     * parallel records parser
+     * <p>
+     * like {@link #parallelRecords(ByteBuffer, ByteClass, Parser)}, collecting the values, in a single shared container
+     * for a concurrent unordered collector such as {@link Collectors#toConcurrentMap}
+     */
+    public static <T, A, R> R parallelRecords(
+            ByteBuffer input, ByteClass delimiters, Parser<T> record, Collector<? super T, A, R> collector) {
+        return ParallelRecords.parse(Input.of(input), input.position(), delimiters, record, collector);
+    }
+
+    /**
+     * parallel records parser
+     * <p>
+     * like {@link #parallelRecords(ByteBuffer, ByteClass, Parser)} over a segment, larger than 2 GB too
+     */
+    public static <T> List<T> parallelRecords(MemorySegment input, ByteClass delimiters, Parser<T> record) {
+        return parallelRecords(input, delimiters, record, Collectors.toList());
+    }
+
+    /**
+     * parallel records parser
+     * <p>
+     * like {@link #parallelRecords(ByteBuffer, ByteClass, Parser, Collector)} over a segment, larger than 2 GB too
+     */
+    public static <T, A, R> R parallelRecords(
+            MemorySegment input, ByteClass delimiters, Parser<T> record, Collector<? super T, A, R> collector) {
+        return ParallelRecords.parse(Input.of(input), 0, delimiters, record, collector);
+    }
+
+    /**
+     * push parser
+     * <p>
+     * parse one message arriving in chunks, suspending at the end of the bytes fed so far, see {@link PushParser}
+     */
+    public static <T> PushParser<T> push(Parser<T> parser) {
+        return new PushParser<>(parser);
+    }
+
+    /**
+     * compile parser
+     * <p>
+     * turn a grammar built from the built-in combinators into a single generated class with straight-line code,
+     * loops for repeat and inlined literal checks, parsers it doesn't know (e.g. lambdas) are called as they are.
+     * returns {@code parser} itself if it can't be compiled
+     */
+    public static <T> Parser<T> compile(Parser<T> parser) {
+        return Compiler.compile(parser);
+    }
+
+    /**
+     * a byte parser without boxing
+     */
+    public static ByteParser byteOf(byte expect) {
+        return new ByteOf(expect);
+    }
+
+    record ByteOf(byte expect) implements ByteParser, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            if (!in.has(pos, 1) || in.get(pos) != expect) {
+                out.expected(pos, this);
+                return FAIL;
+            }
+            out.longValue = expect;
+            return pos + 1;
+        }
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.of(expect);
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * any byte parser without boxing
+     */
+    public static ByteParser anyByte() {
+        return oneOf(ByteClass.any());
+    }
+
+    /**
+     * one of bytes parser without boxing
+     * <p>
+     * like regex `[...]`
+     */
+    public static ByteParser oneOf(ByteClass accept) {
+        return new OneOf(accept);
+    }
+
+    record OneOf(ByteClass accept) implements ByteParser, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            if (in.has(pos, 1)) {
+                var b = in.get(pos);
+                if (accept.contains(b)) {
+                    out.longValue = b;
+                    return pos + 1;
+                }
+            }
+            out.expected(pos, accept);
+            return FAIL;
+        }
+
+        @Override
+        public ByteClass first() {
+            return accept;
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * none of bytes parser without boxing
+     * <p>
+     * like regex `[^...]`
+     */
+    public static ByteParser noneOf(ByteClass reject) {
+        return oneOf(reject.negate());
+    }
+
+    /**
+     * a char parser without boxing
+     */
+    public static CharParser charOf(char expect) {
+        return new CharOf(expect);
+    }
+
+    record CharOf(char expect) implements CharParser, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            if (!in.has(pos, 2) || in.getChar(pos) != expect) {
+                out.expected(pos, this);
+                return FAIL;
+            }
+            out.longValue = expect;
+            return pos + 2;
+        }
+
+        @Override
+        public ByteClass first() {
+            return first_of_char(expect);
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * any char parser without boxing
+     */
+    public static CharParser anyChar() {
+        return AnyChar.INSTANCE;
+    }
+
+    record AnyChar() implements CharParser, Lookahead {
+        static final AnyChar INSTANCE = new AnyChar();
+
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            if (!in.has(pos, 2)) {
+                out.expected(pos, this);
+                return FAIL;
+            }
+            out.longValue = in.getChar(pos);
+            return pos + 2;
+        }
+
+        @Override
+        public ByteClass first() {
+            return ByteClass.any();
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * decimal int parser without boxing
+     * <p>
+     * like regex `[-+]?[0-9]+`, failing on overflow instead of wrapping. digits are read 8 at a time
+     */
+    public static IntParser int32() {
+        return Int32.INSTANCE;
+    }
+
+    record Int32() implements IntParser, Lookahead {
+        static final Int32 INSTANCE = new Int32();
+
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = Numbers.parseLong(in, pos, out, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if (end < 0) out.expected(pos, this);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return INTEGER_FIRST;
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * decimal long parser without boxing
+     * <p>
+     * like regex `[-+]?[0-9]+`, failing on overflow instead of wrapping. digits are read 8 at a time
+     */
+    public static LongParser int64() {
+        return Int64.INSTANCE;
+    }
+
+    record Int64() implements LongParser, Lookahead {
+        static final Int64 INSTANCE = new Int64();
+
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = Numbers.parseLong(in, pos, out, Long.MIN_VALUE, Long.MAX_VALUE);
+            if (end < 0) out.expected(pos, this);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return INTEGER_FIRST;
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    private static final ByteClass INTEGER_FIRST = ByteClass.of("-+").union(ByteClass.range('0', '9'));
+
+    /**
+     * decimal double parser without boxing
+     * <p>
+     * like regex `[-+]?([0-9]+(\.[0-9]*)?|\.[0-9]+)([eE][-+]?[0-9]+)?`, correctly rounded like
+     * {@link Double#parseDouble}, without its hex, {@code NaN} and {@code Infinity} forms. an exponent without
+     * digits isn't consumed
+     */
+    public static DoubleParser float64() {
+        return Float64.INSTANCE;
+    }
+
+    record Float64() implements DoubleParser, Lookahead {
+        static final Float64 INSTANCE = new Float64();
+
+        private static final ByteClass FIRST = INTEGER_FIRST.union(ByteClass.of("."));
+
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = Numbers.parseDouble(in, pos, out);
+            if (end < 0) out.expected(pos, this);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return FIRST;
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    /**
+     * type of the value a parser without boxing writes into {@link Sink#longValue}
+     */
+    enum Primitive {
+        BYTE,
+        CHAR,
+        INT,
+        LONG;
+
+        Object box(long value) {
+            return switch (this) {
+                case BYTE -> (byte) value;
+                case CHAR -> (char) value;
+                case INT -> (int) value;
+                case LONG -> value;
+            };
+        }
+
+        /**
+         * the value as an int, for {@link MapInt}
+         */
+        int toInt(long value) {
+            return switch (this) {
+                case BYTE -> (byte) value;
+                case CHAR -> (char) value;
+                case INT, LONG -> (int) value;
+            };
+        }
+
+        Object newArray(int length) {
+            return switch (this) {
+                case BYTE -> new byte[length];
+                case CHAR -> new char[length];
+                case INT -> new int[length];
+                case LONG -> new long[length];
+            };
+        }
+
+        Object copyOf(Object array, int length) {
+            return switch (this) {
+                case BYTE -> Arrays.copyOf((byte[]) array, length);
+                case CHAR -> Arrays.copyOf((char[]) array, length);
+                case INT -> Arrays.copyOf((int[]) array, length);
+                case LONG -> Arrays.copyOf((long[]) array, length);
+            };
+        }
+    }
+
+    /**
+     * boxed byte parser
+     */
+    public static Parser<Byte> boxedByte(ByteParser parser) {
+        return new Boxed<>(parser, Primitive.BYTE);
+    }
+
+    /**
+     * boxed char parser
+     */
+    public static Parser<Character> boxedChar(CharParser parser) {
+        return new Boxed<>(parser, Primitive.CHAR);
+    }
+
+    /**
+     * boxed int parser
+     */
+    public static Parser<Integer> boxedInt(IntParser parser) {
+        return new Boxed<>(parser, Primitive.INT);
+    }
+
+    /**
+     * boxed long parser
+     */
+    public static Parser<Long> boxedLong(LongParser parser) {
+        return new Boxed<>(parser, Primitive.LONG);
+    }
+
+    record Boxed<T>(ParseAt parser, Primitive type) implements Combinator<T>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            if (end >= 0) out.value = type.box(out.longValue);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * boxed double parser
+     */
+    public static Parser<Double> boxedDouble(DoubleParser parser) {
+        return new BoxedDouble(parser);
+    }
+
+    record BoxedDouble(DoubleParser parser) implements Combinator<Double>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            if (end >= 0) out.value = out.doubleValue;
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * map byte parser to object
+     */
+    public static <R> Parser<R> mapByte(ByteParser parser, IntFunction<R> mapper) {
+        return new MapInt<>(parser, Primitive.BYTE, mapper);
+    }
+
+    /**
+     * map char parser to object
+     */
+    public static <R> Parser<R> mapChar(CharParser parser, IntFunction<R> mapper) {
+        return new MapInt<>(parser, Primitive.CHAR, mapper);
+    }
+
+    /**
+     * map int parser to object
+     */
+    public static <R> Parser<R> mapInt(IntParser parser, IntFunction<R> mapper) {
+        return new MapInt<>(parser, Primitive.INT, mapper);
+    }
+
+    /**
+     * {@code mapper} applied to the byte, char or int value of {@code parser}
+     */
+    record MapInt<R>(ParseAt parser, Primitive type, IntFunction<R> mapper) implements Combinator<R>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            if (end >= 0) out.value = mapper.apply(type.toInt(out.longValue));
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * map long parser to object
+     */
+    public static <R> Parser<R> mapLong(LongParser parser, LongFunction<R> mapper) {
+        return new MapLong<>(parser, mapper);
+    }
+
+    record MapLong<R>(LongParser parser, LongFunction<R> mapper) implements Combinator<R>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            if (end >= 0) out.value = mapper.apply(out.longValue);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * map double parser to object
+     */
+    public static <R> Parser<R> mapDouble(DoubleParser parser, DoubleFunction<R> mapper) {
+        return new MapDouble<>(parser, mapper);
+    }
+
+    record MapDouble<R>(DoubleParser parser, DoubleFunction<R> mapper) implements Combinator<R>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var end = parser.parseAt(in, pos, out);
+            if (end >= 0) out.value = mapper.apply(out.doubleValue);
+            return end;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return Lookahead.nullable(parser);
+        }
+    }
+
+    private static void check_repeat_times(int min, int max) {
+        if (!(min > 0)) throw new IllegalArgumentException("`times` requires > 0");
+        if (!(max >= min)) throw new IllegalArgumentException("requires `max` >= `min`");
+    }
+
+    /**
+     * repeat byte parser by times into a {@code byte[]}
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    public static Parser<byte[]> repeatBytes(ByteParser parser, int min, int max) {
+        check_repeat_times(min, max);
+        return new RepeatArray<>(parser, min, max, Primitive.BYTE);
+    }
+
+    /**
+     * zero or many byte parser into a {@code byte[]}
+     * <p>
+     * like regex `*`
+     */
+    public static Parser<byte[]> zeroOrManyBytes(ByteParser parser) {
+        return new RepeatArray<>(parser, 0, Integer.MAX_VALUE, Primitive.BYTE);
+    }
+
+    /**
+     * repeat char parser by times into a {@code char[]}
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    public static Parser<char[]> repeatChars(CharParser parser, int min, int max) {
+        check_repeat_times(min, max);
+        return new RepeatArray<>(parser, min, max, Primitive.CHAR);
+    }
+
+    /**
+     * zero or many char parser into a {@code char[]}
+     * <p>
+     * like regex `*`
+     */
+    public static Parser<char[]> zeroOrManyChars(CharParser parser) {
+        return new RepeatArray<>(parser, 0, Integer.MAX_VALUE, Primitive.CHAR);
+    }
+
+    /**
+     * repeat int parser by times into an {@code int[]}
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    public static Parser<int[]> repeatInts(IntParser parser, int min, int max) {
+        check_repeat_times(min, max);
+        return new RepeatArray<>(parser, min, max, Primitive.INT);
+    }
+
+    /**
+     * zero or many int parser into an {@code int[]}
+     * <p>
+     * like regex `*`
+     */
+    public static Parser<int[]> zeroOrManyInts(IntParser parser) {
+        return new RepeatArray<>(parser, 0, Integer.MAX_VALUE, Primitive.INT);
+    }
+
+    /**
+     * repeat long parser by times into a {@code long[]}
+     * <p>
+     * like regex `{min.max}`
+     *
+     * @param min min times
+     * @param max max times
+     */
+    public static Parser<long[]> repeatLongs(LongParser parser, int min, int max) {
+        check_repeat_times(min, max);
+        return new RepeatArray<>(parser, min, max, Primitive.LONG);
+    }
+
+    /**
+     * zero or many long parser into a {@code long[]}
+     * <p>
+     * like regex `*`
+     */
+    public static Parser<long[]> zeroOrManyLongs(LongParser parser) {
+        return new RepeatArray<>(parser, 0, Integer.MAX_VALUE, Primitive.LONG);
+    }
+
+    /**
+     * repeat of a parser without boxing into an array of its {@code type}
+     */
+    record RepeatArray<A>(ParseAt parser, int min, int max, Primitive type) implements Combinator<A>, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            return parse_repeat_array(parser, min, max, type, in, pos, out);
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return min == 0 || Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * the loop of {@link RepeatArray}, like {@link #parse_repeat} without boxing
+     */
+    private static long parse_repeat_array(
+            ParseAt parser, int min, int max, Primitive type, Input in, long pos, Sink out) {
+        int capacity = 16;
+        var values = type.newArray(capacity);
+        int n = 0;
+
+        while (n < max) {
+            var end = parser.parseAt(in, pos, out);
+            if (end == FAIL) {
+                if (pos < out.cut) return ERROR;
+                break;
+            }
+            if (end < 0) return end;
+            if (n == capacity) values = type.copyOf(values, capacity <<= 1);
+            // type checks of the array, which the JIT profiles, are cheaper here than a switch on the type
+            long v = out.longValue;
+            if (values instanceof byte[] a) a[n++] = (byte) v;
+            else if (values instanceof int[] a) a[n++] = (int) v;
+            else if (values instanceof char[] a) a[n++] = (char) v;
+            else ((long[]) values)[n++] = v;
+            // more empty matches would be the same, only as many as required
+            if (end == pos && n >= min) break;
+            pos = end;
+        }
+
+        if (n < min) return FAIL;
+
+        out.value = type.copyOf(values, n);
+        return pos;
+    }
+
+    /**
+     * fold repeat int parser by times
+     * <p>
+     * like regex `{min.max}`, folding the ints from {@code seed} without boxing, e.g. a sum
+     *
+     * @param min min times, may be 0
+     * @param max max times
+     */
+    public static IntParser repeatFoldInts(
+            IntParser parser, int min, int max, int seed, IntBinaryOperator accumulator) {
+        check_fold_times(min, max);
+        return new RepeatFoldInts(parser, min, max, seed, accumulator);
+    }
+
+    record RepeatFoldInts(IntParser parser, int min, int max, int seed, IntBinaryOperator accumulator)
+            implements IntParser, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var acc = seed;
+            int n = 0;
+
+            while (n < max) {
+                var end = parser.parseAt(in, pos, out);
+                if (end == FAIL) {
+                    if (pos < out.cut) return ERROR;
+                    break;
+                }
+                if (end < 0) return end;
+                acc = accumulator.applyAsInt(acc, (int) out.longValue);
+                n++;
+                // more empty matches would be the same, only as many as required
+                if (end == pos && n >= min) break;
+                pos = end;
+            }
+
+            if (n < min) return FAIL;
+
+            out.longValue = acc;
+            return pos;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return min == 0 || Lookahead.nullable(parser);
+        }
+    }
+
+    /**
+     * fold repeat long parser by times
+     * <p>
+     * like regex `{min.max}`, folding the longs from {@code seed} without boxing, e.g. a sum
+     *
+     * @param min min times, may be 0
+     * @param max max times
+     */
+    public static LongParser repeatFoldLongs(
+            LongParser parser, int min, int max, long seed, LongBinaryOperator accumulator) {
+        check_fold_times(min, max);
+        return new RepeatFoldLongs(parser, min, max, seed, accumulator);
+    }
+
+    record RepeatFoldLongs(LongParser parser, int min, int max, long seed, LongBinaryOperator accumulator)
+            implements LongParser, Lookahead {
+        @Override
+        public long parseAt(Input in, long pos, Sink out) {
+            var acc = seed;
+            int n = 0;
+
+            while (n < max) {
+                var end = parser.parseAt(in, pos, out);
+                if (end == FAIL) {
+                    if (pos < out.cut) return ERROR;
+                    break;
+                }
+                if (end < 0) return end;
+                acc = accumulator.applyAsLong(acc, out.longValue);
+                n++;
+                // more empty matches would be the same, only as many as required
+                if (end == pos && n >= min) break;
+                pos = end;
+            }
+
+            if (n < min) return FAIL;
+
+            out.longValue = acc;
+            return pos;
+        }
+
+        @Override
+        public ByteClass first() {
+            return Lookahead.first(parser);
+        }
+
+        @Override
+        public boolean nullable() {
+            return min == 0 || Lookahead.nullable(parser);
         }
     }
 }
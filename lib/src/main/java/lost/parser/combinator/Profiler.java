@@ -0,0 +1,149 @@
+package lost.parser.combinator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * per-rule profile of a grammar, see {@link Parsers#profile(Parser)}
+ * <p>
+ * every {@link Parsers#named} rule parsed inside counts its invocations, successes, failures, bytes consumed, bytes
+ * backtracked and time. counters are striped, so one profiler can be shared by concurrent parses and left on
+ * <pre>{@code
+ * var profiled = Parsers.profile(Parsers.named("object", object));
+ * profiled.parse(input);
+ * System.out.println(profiled);
+ * }</pre>
+ * outside of a profiler named rules cost one field read, and a flight recorder event check
+ */
+public final class Profiler<T> implements Combinator<T>, Lookahead {
+
+    /**
+     * @param backtracked bytes consumed again after the parse backtracked before the furthest match of a named rule,
+     *                    e.g. a prefix re-parsed by the next alternative
+     * @param nanos       time spent in the rule, including the named rules it calls
+     */
+    public record Stats(
+            String name, long invocations, long successes, long failures, long bytes, long backtracked, long nanos) {}
+
+    private static final class Counters {
+        final LongAdder successes = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder backtracked = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    private final Parser<T> parser;
+
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    Profiler(Parser<T> parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    public long parseAt(Input in, long pos, Sink out) {
+        var profiler = out.profiler;
+        var furthest = out.profiled;
+        out.profiler = this;
+        out.profiled = pos;
+        try {
+            return parser.parseAt(in, pos, out);
+        } finally {
+            out.profiler = profiler;
+            out.profiled = furthest;
+        }
+    }
+
+    @Override
+    public ByteClass first() {
+        return Lookahead.first(parser);
+    }
+
+    @Override
+    public boolean nullable() {
+        return Lookahead.nullable(parser);
+    }
+
+    /**
+     * parse a named rule, counting it
+     */
+    long parseAt(String name, Parser<?> parser, Input in, long pos, Sink out) {
+        var counters = this.counters.get(name);
+        if (counters == null) counters = this.counters.computeIfAbsent(name, n -> new Counters());
+
+        // furthest before the rule, the named rules it calls move it on
+        var furthest = out.profiled;
+        long start = System.nanoTime();
+        var end = parser.parseAt(in, pos, out);
+        counters.nanos.add(System.nanoTime() - start);
+
+        if (end < 0) {
+            counters.failures.increment();
+            return end;
+        }
+        counters.successes.increment();
+        counters.bytes.add(end - pos);
+        if (pos < furthest) counters.backtracked.add(Math.min(end, furthest) - pos);
+        if (end > out.profiled) out.profiled = end;
+        return end;
+    }
+
+    /**
+     * snapshot of the counters by rule, most time first
+     */
+    public List<Stats> stats() {
+        var stats = new ArrayList<Stats>();
+        counters.forEach((name, c) -> {
+            long successes = c.successes.sum(), failures = c.failures.sum();
+            stats.add(new Stats(
+                    name,
+                    successes + failures,
+                    successes,
+                    failures,
+                    c.bytes.sum(),
+                    c.backtracked.sum(),
+                    c.nanos.sum()));
+        });
+        stats.sort(Comparator.comparingLong(Stats::nanos).reversed());
+        return stats;
+    }
+
+    /**
+     * clear the counters, e.g. after warm-up
+     */
+    public void reset() {
+        counters.clear();
+    }
+
+    /**
+     * the stats as a table
+     */
+    @Override
+    public String toString() {
+        var table = new StringBuilder(String.format(
+                "%-24s %12s %12s %12s %14s %14s %12s%n",
+                "rule",
+                "invocations",
+                "successes",
+                "failures",
+                "bytes",
+                "backtracked",
+                "ms"));
+        for (var s : stats()) {
+            table.append(String.format(
+                    "%-24s %12d %12d %12d %14d %14d %12.3f%n",
+                    s.name(),
+                    s.invocations(),
+                    s.successes(),
+                    s.failures(),
+                    s.bytes(),
+                    s.backtracked(),
+                    s.nanos() / 1e6));
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package lost.parser.combinator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * push-mode parse of one message arriving in chunks, e.g. from non-blocking reads
+ * <p>
+ * the parser runs on a virtual thread and suspends where it reaches the end of the bytes fed so far, then resumes
+ * exactly there with the next chunk, so no byte is parsed twice
+ * <pre>{@code
+ * var push = Parsers.push(frame);
+ * switch (push.feed(chunk)) {
+ *     case PushParser.NeedMore<Frame> more -> ... // read more, or push.finish() at the end of the stream
+ *     case PushParser.Done<Frame>(var value, var rest) -> ...
+ *     case PushParser.Error<Frame>(var error) -> ...
+ * }
+ * }</pre>
+ * fed from one thread at a time. an abandoned push parser keeps its suspended thread, {@link #finish()} ends it.
+ * opaque {@link Parser#parse(ByteBuffer)} implementations only see the bytes fed so far
+ */
+public final class PushParser<T> {
+
+    public sealed interface Result<T> {}
+
+    /**
+     * the parse is suspended, {@link #feed} more or {@link #finish}
+     */
+    public record NeedMore<T>() implements Result<T> {}
+
+    /**
+     * @param rest bytes fed after the match
+     */
+    public record Done<T>(T value, ByteBuffer rest) implements Result<T> {}
+
+    public record Error<T>(ParseError error) implements Result<T> {}
+
+    private final Parser<T> parser;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition fed = lock.newCondition();
+    private final Condition suspended = lock.newCondition();
+
+    private byte[] data = new byte[1024];
+    private int size;
+    private final Input.OfBuffer in = Input.pushed(ByteBuffer.wrap(data, 0, 0), this::await);
+
+    private Thread thread;
+    private boolean complete;
+    /**
+     * end of input awaited by the suspended parse, or -1 while running
+     */
+    private long wanted = -1;
+
+    private boolean finished;
+    private Result<T> result;
+    private Throwable thrown;
+
+    PushParser(Parser<T> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * append {@code chunk} to the input and resume the parse, consuming the chunk
+     *
+     * @return {@link NeedMore} while suspended, or the result
+     */
+    public Result<T> feed(ByteBuffer chunk) {
+        lock.lock();
+        try {
+            if (finished || complete) throw new IllegalStateException("push parser is finished");
+            append(chunk);
+            return resume();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * end the input, a suspended parse sees the end of input
+     *
+     * @return the result
+     */
+    public Result<T> finish() {
+        lock.lock();
+        try {
+            complete = true;
+            return resume();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(ByteBuffer chunk) {
+        int n = chunk.remaining();
+        if (data.length - size < n) data = Arrays.copyOf(data, Math.max(data.length << 1, Math.addExact(size, n)));
+        chunk.get(data, size, n);
+        size += n;
+        // the parse is suspended, so it sees the grown buffer once resumed
+        in.grow(ByteBuffer.wrap(data, 0, size));
+    }
+
+    private Result<T> resume() {
+        if (thread == null) thread = Thread.ofVirtual().name("push-parser").start(this::run);
+        else if (wanted >= 0) fed.signal();
+
+        while (!finished && !(wanted > size && !complete)) suspended.awaitUninterruptibly();
+
+        if (thrown instanceof RuntimeException e) throw e;
+        if (thrown instanceof java.lang.Error e) throw e;
+        return finished ? result : new NeedMore<>();
+    }
+
+    /**
+     * called by the parse through {@link Input#more}, suspends until {@code end} bytes are fed or the input is complete
+     */
+    boolean await(long end) {
+        lock.lock();
+        try {
+            wanted = end;
+            suspended.signal();
+            while (size < end && !complete) fed.awaitUninterruptibly();
+            wanted = -1;
+            return size >= end;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        var out = new Sink();
+        long end = Parser.FAIL;
+        Throwable thrown = null;
+        try {
+            end = parser.parseAt(in, 0, out);
+        } catch (Throwable e) {
+            thrown = e;
+        }
+        out.release();
+
+        lock.lock();
+        try {
+            if (thrown != null) this.thrown = thrown;
+            else if (end < 0) result = new Error<>(out.error(0));
+            else result = new Done<>(out.value(), ByteBuffer.wrap(data, (int) end, size - (int) end).slice());
+            finished = true;
+            suspended.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
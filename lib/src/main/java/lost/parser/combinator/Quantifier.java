@@ -0,0 +1,24 @@
+package lost.parser.combinator;
+
+/**
+ * how a repetition meets the parser that follows it, see
+ * {@link Parsers#repeat(Parser, int, int, Quantifier, Parser, java.util.function.BiFunction)}
+ */
+public enum Quantifier {
+
+    /**
+     * as many as possible, giving back one at a time until the rest matches, like regex `*`
+     */
+    GREEDY,
+
+    /**
+     * as few as possible, taking one more at a time until the rest matches, like regex `*?`
+     */
+    LAZY,
+
+    /**
+     * as many as possible without giving back, like regex `*+` and every PEG repetition such as
+     * {@link Parsers#zeroOrMany(Parser)}
+     */
+    POSSESSIVE
+}
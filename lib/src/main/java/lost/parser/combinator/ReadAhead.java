@@ -0,0 +1,65 @@
+package lost.parser.combinator;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * sequential read-ahead of a mapped file
+ * <p>
+ * the input is readable one window at a time. when the parse reaches the end of the readable windows, the next
+ * window becomes readable and the one after it is loaded in the background, so page faults overlap with parsing
+ * and stay a bounded distance ahead of it
+ */
+final class ReadAhead implements Input.Source {
+
+    /**
+     * default window size, set with {@code -Dlost.parser.combinator.readAhead.windowBytes}
+     */
+    static final long WINDOW = Long.getLong("lost.parser.combinator.readAhead.windowBytes", 32L << 20);
+
+    private final MemorySegment segment;
+    private final long window;
+    private final Input in;
+
+    /**
+     * end of the windows loaded or being loaded
+     */
+    private long loaded;
+
+    ReadAhead(MemorySegment segment, ByteOrder order, long window) {
+        this.segment = segment;
+        this.window = window;
+        this.in = Input.of(segment, order, Math.min(window, segment.byteSize()), this);
+        load(0);
+        load(in.limit());
+    }
+
+    Input input() {
+        return in;
+    }
+
+    @Override
+    public boolean more(long end) {
+        long size = segment.byteSize();
+        if (end > size) {
+            in.limit = size;
+            return false;
+        }
+        // whole windows, at least one beyond the current limit
+        long limit = Math.min(size, Math.max(end, in.limit + window));
+        in.limit = limit;
+        load(limit);
+        return true;
+    }
+
+    /**
+     * load the window at {@code from} in the background, unless already loaded
+     */
+    private void load(long from) {
+        long size = segment.byteSize();
+        if (from < loaded || from >= size) return;
+        var slice = segment.asSlice(from, Math.min(window, size - from));
+        loaded = from + slice.byteSize();
+        Thread.ofVirtual().name("read-ahead").start(slice::load);
+    }
+}
@@ -0,0 +1,238 @@
+package lost.parser.combinator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the regex subset of {@link Parsers#regex(String)}, parsed into {@link Dfa.Node} trees
+ * <p>
+ * literals, {@code .}, classes like {@code [a-z]} and {@code [^,]}, the escapes {@code \d \w \s \D \W \S \t \n \r \f
+ * \xHH} and escaped punctuation, groups {@code (...)} and {@code (?:...)}, {@code |}, and the greedy quantifiers
+ * {@code * + ? {n} {n,} {n,m}}. it works on bytes: {@code .} and classes match one byte, a non-ASCII literal matches
+ * its UTF-8 bytes
+ */
+final class RegexSyntax {
+
+    private static final int MAX_TIMES = 1000;
+
+    private static final ByteClass DIGIT = ByteClass.range('0', '9');
+    private static final ByteClass WORD =
+            DIGIT.union(ByteClass.range('a', 'z')).union(ByteClass.range('A', 'Z')).union(ByteClass.of("_"));
+    private static final ByteClass SPACE = ByteClass.of(" \t\n\u000B\f\r");
+    private static final ByteClass DOT = ByteClass.of("\n").negate();
+
+    private final String pattern;
+    private int i;
+
+    private RegexSyntax(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * @throws IllegalArgumentException on a syntax error or an unsupported construct
+     */
+    static Dfa.Node parse(String pattern) {
+        var syntax = new RegexSyntax(pattern);
+        var node = syntax.alt();
+        if (syntax.i < pattern.length()) throw syntax.error("unmatched )");
+        return node;
+    }
+
+    private IllegalArgumentException error(String what) {
+        return new IllegalArgumentException("bad regex at " + i + ": " + what + " in " + pattern);
+    }
+
+    private boolean more() {
+        return i < pattern.length();
+    }
+
+    private char peek() {
+        return pattern.charAt(i);
+    }
+
+    private Dfa.Node alt() {
+        var nodes = new ArrayList<Dfa.Node>();
+        nodes.add(concat());
+        while (more() && peek() == '|') {
+            i++;
+            nodes.add(concat());
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Dfa.Alt(nodes);
+    }
+
+    private Dfa.Node concat() {
+        var nodes = new ArrayList<Dfa.Node>();
+        while (more() && peek() != '|' && peek() != ')') nodes.add(repeat());
+        return nodes.size() == 1 ? nodes.get(0) : new Dfa.Concat(nodes);
+    }
+
+    private Dfa.Node repeat() {
+        var node = atom();
+        while (more()) {
+            int min, max;
+            switch (peek()) {
+                case '*' -> {
+                    min = 0;
+                    max = -1;
+                    i++;
+                }
+                case '+' -> {
+                    min = 1;
+                    max = -1;
+                    i++;
+                }
+                case '?' -> {
+                    min = 0;
+                    max = 1;
+                    i++;
+                }
+                case '{' -> {
+                    i++;
+                    min = number();
+                    max = min;
+                    if (more() && peek() == ',') {
+                        i++;
+                        max = more() && peek() == '}' ? -1 : number();
+                    }
+                    if (!more() || peek() != '}') throw error("expected }");
+                    i++;
+                    if (max >= 0 && max < min) throw error("max < min");
+                }
+                default -> {
+                    return node;
+                }
+            }
+            if (more() && (peek() == '?' || peek() == '+')) {
+                throw error("lazy and possessive quantifiers not supported");
+            }
+            node = new Dfa.Repeat(node, min, max);
+        }
+        return node;
+    }
+
+    private int number() {
+        int start = i;
+        while (more() && peek() >= '0' && peek() <= '9') i++;
+        if (i == start) throw error("expected a number");
+        var n = Integer.parseInt(pattern, start, i, 10);
+        if (n > MAX_TIMES) throw error("more than " + MAX_TIMES + " times");
+        return n;
+    }
+
+    private Dfa.Node atom() {
+        var c = peek();
+        switch (c) {
+            case '(' -> {
+                i++;
+                if (pattern.startsWith("?:", i)) i += 2;
+                else if (more() && peek() == '?') throw error("group flags and lookarounds not supported");
+                var node = alt();
+                if (!more() || peek() != ')') throw error("expected )");
+                i++;
+                return node;
+            }
+            case '[' -> {
+                i++;
+                return new Dfa.Bytes(set());
+            }
+            case '.' -> {
+                i++;
+                return new Dfa.Bytes(DOT);
+            }
+            case '\\' -> {
+                i++;
+                var escaped = escape();
+                if (escaped != null) return new Dfa.Bytes(escaped);
+                var literal = pattern.codePointAt(i);
+                i += Character.charCount(literal);
+                return Dfa.literal(Character.toString(literal).getBytes(StandardCharsets.UTF_8));
+            }
+            case '*', '+', '?', '{' -> throw error("nothing to repeat");
+            case '^', '$' -> throw error("anchors not supported");
+            default -> {
+                var literal = pattern.codePointAt(i);
+                i += Character.charCount(literal);
+                if (literal < 0x80) return new Dfa.Bytes(ByteClass.of((byte) literal));
+                return Dfa.literal(Character.toString(literal).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * the byte class of the escape after a backslash, or {@code null} leaving an escaped literal to the caller
+     */
+    private ByteClass escape() {
+        if (!more()) throw error("trailing \\");
+        var c = peek();
+        var escaped =
+                switch (c) {
+                    case 'd' -> DIGIT;
+                    case 'D' -> DIGIT.negate();
+                    case 'w' -> WORD;
+                    case 'W' -> WORD.negate();
+                    case 's' -> SPACE;
+                    case 'S' -> SPACE.negate();
+                    case 't' -> ByteClass.of("\t");
+                    case 'n' -> ByteClass.of("\n");
+                    case 'r' -> ByteClass.of("\r");
+                    case 'f' -> ByteClass.of("\f");
+                    case 'x' -> {
+                        if (i + 3 > pattern.length()) throw error("expected \\xHH");
+                        try {
+                            var b = Integer.parseInt(pattern, i + 1, i + 3, 16);
+                            i += 2;
+                            yield ByteClass.of((byte) b);
+                        } catch (NumberFormatException e) {
+                            throw error("expected \\xHH");
+                        }
+                    }
+                    default -> {
+                        if (Character.isLetterOrDigit(c)) throw error("unsupported escape \\" + c);
+                        yield null;
+                    }
+                };
+        if (escaped != null) i++;
+        return escaped;
+    }
+
+    /**
+     * a class after its {@code [}, up to and including its {@code ]}
+     */
+    private ByteClass set() {
+        boolean negate = more() && peek() == '^';
+        if (negate) i++;
+        var set = ByteClass.none();
+        boolean first = true;
+        while (true) {
+            if (!more()) throw error("expected ]");
+            if (peek() == ']' && !first) break;
+            first = false;
+
+            var from = member();
+            if (from.cardinality() == 1 && pattern.startsWith("-", i) && !pattern.startsWith("-]", i)) {
+                i++;
+                var to = member();
+                if (to.cardinality() != 1) throw error("bad range");
+                int lo = from.ranges()[0], hi = to.ranges()[0];
+                if (hi < lo) throw error("bad range");
+                set = set.union(ByteClass.range(lo, hi));
+            } else set = set.union(from);
+        }
+        i++;
+        return negate ? set.negate() : set;
+    }
+
+    private ByteClass member() {
+        var c = peek();
+        if (c == '\\') {
+            i++;
+            var escaped = escape();
+            if (escaped != null) return escaped;
+            c = peek();
+        }
+        if (c >= 0x80) throw error("non-ASCII in a class");
+        i++;
+        return ByteClass.of((byte) c);
+    }
+}
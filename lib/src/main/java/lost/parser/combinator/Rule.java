@@ -0,0 +1,116 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parser.FAIL;
+
+import java.util.Objects;
+
+/**
+ * recursive rule, a forward reference defined after use
+ * <p>
+ * supports direct and indirect left recursion by memoized seed growing (Warth et al.): a left-recursive call at the
+ * same position first fails, then the rule is re-parsed with the last result as seed while it keeps growing. e.g. a
+ * left-associative expression without intermediate lists
+ * <pre>{@code
+ * var expr = Parsers.<Integer>rule();
+ * expr.define(Parsers.or(Parsers.and(expr, Parsers.and(Parsers.str("-"), num, (op, n) -> n), (a, b) -> a - b), num));
+ * }</pre>
+ * results are memoized by position, see {@link Parsers#memo(Parser)}
+ */
+public final class Rule<T> implements Combinator<T> {
+
+    private final int id = Parsers.MEMO_RULES.getAndIncrement();
+
+    private Parser<T> parser;
+
+    Rule() {}
+
+    /**
+     * define the rule, once
+     */
+    public Rule<T> define(Parser<T> parser) {
+        if (this.parser != null) throw new IllegalStateException("rule is already defined");
+        this.parser = Objects.requireNonNull(parser);
+        return this;
+    }
+
+    Parser<T> parser() {
+        return parser;
+    }
+
+    @Override
+    public long parseAt(Input in, long pos, Sink out) {
+        var parser = this.parser;
+        if (parser == null) throw new IllegalStateException("rule is not defined");
+
+        var memo = out.memo(in);
+        int slot = memo.find(id, pos, out.generation);
+        if (slot >= 0) return memo.restore(slot, out);
+
+        // positions only grow up the stack, so a left-recursive call is among the top frames at `pos`
+        for (var frame = out.rules; frame != null && frame.pos == pos; frame = frame.parent) {
+            if (frame.rule == this) {
+                frame.recursive = true;
+                out.headDepth = Math.min(out.headDepth, frame.depth);
+                if (frame.end >= 0) {
+                    out.value = frame.value;
+                    out.longValue = frame.longValue;
+                }
+                return frame.end;
+            }
+        }
+
+        var frame = new Frame(this, pos, out.rules);
+        int saved = out.headDepth;
+        long furthest = out.furthest;
+        int expectedCount = out.expectedCount;
+        // heads below this frame, whose seeds this result depends on
+        int heads = Integer.MAX_VALUE;
+        out.rules = frame;
+        try {
+            long end;
+            while (true) {
+                out.headDepth = Integer.MAX_VALUE;
+                end = parser.parseAt(in, pos, out);
+                if (out.headDepth < frame.depth) heads = Math.min(heads, out.headDepth);
+                if (!frame.recursive || (end < 0 && end != FAIL)) break;
+                if (end <= frame.end) {
+                    end = frame.end;
+                    if (end >= 0) {
+                        out.value = frame.value;
+                        out.longValue = frame.longValue;
+                    }
+                    break;
+                }
+                frame.end = end;
+                frame.value = out.value;
+                frame.longValue = out.longValue;
+            }
+            if (heads == Integer.MAX_VALUE) memo.store(id, pos, out.generation, end, out, furthest, expectedCount);
+            return end;
+        } finally {
+            out.rules = frame.parent;
+            out.headDepth = Math.min(saved, heads);
+        }
+    }
+
+    /**
+     * rule invocation in progress, holding the seed while growing
+     */
+    static final class Frame {
+        final Rule<?> rule;
+        final long pos;
+        final Frame parent;
+        final int depth;
+        boolean recursive;
+        long end = Parser.FAIL;
+        Object value;
+        long longValue;
+
+        Frame(Rule<?> rule, long pos, Frame parent) {
+            this.rule = rule;
+            this.pos = pos;
+            this.parent = parent;
+            this.depth = parent == null ? 1 : parent.depth + 1;
+        }
+    }
+}
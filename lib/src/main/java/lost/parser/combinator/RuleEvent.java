@@ -0,0 +1,63 @@
+package lost.parser.combinator;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * flight recorder event of a {@link Parsers#named} rule taking longer than the threshold
+ * <p>
+ * disabled by default like {@link ParseEvent}, the threshold (1 ms) is a recording setting too
+ */
+@Name("lost.parser.combinator.Rule")
+@Label("Parse Rule")
+@Category("Parser")
+@Description("Named rule parsed for longer than the threshold")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+final class RuleEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(RuleEvent.class);
+
+    /**
+     * whether a recording enabled the event, checked before allocating one per rule since rules nest too deeply for
+     * the JIT to eliminate the allocations
+     */
+    static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+
+    @Label("Rule")
+    String rule;
+
+    @Label("Offset")
+    long offset;
+
+    @Label("Consumed")
+    @DataAmount
+    long consumed;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * end the event of the rule parsed from {@code pos} returning {@code end}, committing it if enabled and slow
+     */
+    void report(String rule, long pos, long end) {
+        end();
+        if (!shouldCommit()) return;
+        this.rule = rule;
+        offset = pos;
+        consumed = end < 0 ? 0 : end - pos;
+        success = end >= 0;
+        commit();
+    }
+}
@@ -0,0 +1,79 @@
+package lost.parser.combinator;
+
+/**
+ * scanning loops shared by the built-in parsers
+ * <p>
+ * the vectorized backend in {@link VectorScan} is opt-in: run with {@code -Dlost.parser.combinator.simd=true} and
+ * {@code --add-modules jdk.incubator.vector}, otherwise, or if the module is missing, the scalar loops are used.
+ * every use of {@link VectorScan} is behind {@link #SIMD}, so the class is never linked without the module
+ */
+final class Scan {
+    private Scan() {
+        throw new Error("Can not instantiate me !!!");
+    }
+
+    static final boolean SIMD = simd();
+
+    /**
+     * shortest run worth handing to the vectorized backend
+     */
+    private static final long SIMD_MIN = 32;
+
+    private static boolean simd() {
+        if (!Boolean.getBoolean("lost.parser.combinator.simd")) return false;
+        try {
+            Class.forName("jdk.incubator.vector.ByteVector");
+            return VectorScan.available();
+        } catch (Throwable ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * position of the first byte in {@code [from, to)} that belongs to {@code stop}, or {@code to}
+     */
+    static long until(Input in, long from, long to, ByteClass stop) {
+        if (SIMD && to - from >= SIMD_MIN) {
+            var ranges = stop.ranges();
+            if (ranges.length == 0) return to;
+            if (ranges.length <= VectorScan.MAX_RANGES * 2) from = VectorScan.until(in.segment(), from, to, ranges);
+        }
+        return until_scalar(in, from, to, stop);
+    }
+
+    /**
+     * like {@link #until(Input, long, long, ByteClass)} to the end of input, waiting for more in push mode
+     */
+    static long until(Input in, long from, ByteClass stop) {
+        long end = until(in, from, in.limit(), stop);
+        while (end == in.limit() && in.more(end + 1)) end = until(in, end, in.limit(), stop);
+        return end;
+    }
+
+    static long until_scalar(Input in, long from, long to, ByteClass stop) {
+        while (from < to && !stop.contains(in.get(from))) from++;
+        return from;
+    }
+
+    /**
+     * position of the first char in {@code [from, to)} that is not a whitespace, or of the trailing odd byte
+     */
+    static long skipWhitespaces(Input in, long from, long to) {
+        if (SIMD && to - from >= SIMD_MIN) from = VectorScan.skipWhitespaces(in.segment(), from, to, in.order());
+        return skipWhitespaces_scalar(in, from, to);
+    }
+
+    /**
+     * like {@link #skipWhitespaces(Input, long, long)} to the end of input, waiting for more in push mode
+     */
+    static long skipWhitespaces(Input in, long from) {
+        long end = skipWhitespaces(in, from, in.limit());
+        while (end + 2 > in.limit() && in.more(end + 2)) end = skipWhitespaces(in, end, in.limit());
+        return end;
+    }
+
+    static long skipWhitespaces_scalar(Input in, long from, long to) {
+        while (from + 2 <= to && Character.isWhitespace(in.getChar(from))) from += 2;
+        return from;
+    }
+}
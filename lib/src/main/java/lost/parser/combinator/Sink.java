@@ -0,0 +1,188 @@
+package lost.parser.combinator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * caller-supplied receiver of the values produced by {@link Parser#parseAt}
+ * <p>
+ * a parser that succeeds overwrites the value, so a sink can be reused for a whole parse,
+ * it also carries the per-parse state of the parsers such as the packrat memo table
+ */
+public final class Sink {
+
+    Object value;
+
+    long longValue;
+
+    double doubleValue;
+
+    MemoTable memo;
+
+    /**
+     * input of the memo generation, parsing another input takes a new generation
+     */
+    Input memoInput;
+
+    long generation;
+
+    /**
+     * position of the last {@link Parsers#cut()}, no parser resumes before it
+     */
+    long cut;
+
+    /**
+     * top of the stack of rules in progress, see {@link Rule}
+     */
+    Rule.Frame rules;
+
+    /**
+     * lowest depth of a left-recursive rule hit since last cleared, results depending on its seed aren't memoized
+     */
+    int headDepth = Integer.MAX_VALUE;
+
+    /**
+     * furthest position a parser failed at in this parse, or -1
+     */
+    long furthest = -1;
+
+    /**
+     * what was expected at {@link #furthest}, see {@link #expected(long, Object)}
+     */
+    private Object[] expected;
+
+    int expectedCount;
+
+    /**
+     * profiler of the named rules, or {@code null}, see {@link Parsers#profile(Parser)}
+     */
+    Profiler<?> profiler;
+
+    /**
+     * furthest end of a named rule in the profiled parse, a rule starting before it re-parses backtracked bytes
+     */
+    long profiled;
+
+    @SuppressWarnings("unchecked")
+    public <T> T value() {
+        return (T) value;
+    }
+
+    public void value(Object value) {
+        this.value = value;
+    }
+
+    /**
+     * forget the per-parse state: the memo entries, the cut, the expected items and the profiler. the values are kept,
+     * and the memo generation is only replaced on the next memo use
+     * <p>
+     * required before reusing the sink for another parse of the same input, a parse of another input starts with no
+     * memo entries by itself
+     */
+    public void reset() {
+        release();
+        cut = 0;
+        rules = null;
+        headDepth = Integer.MAX_VALUE;
+        furthest = -1;
+        expectedCount = 0;
+        profiler = null;
+        profiled = 0;
+    }
+
+    /**
+     * note a failure at {@code pos} expecting {@code item}, only the furthest failures are kept
+     * <p>
+     * items are the parsers' own constants (e.g. the literal of {@link Parsers#str}), described only once the whole
+     * parse fails, see {@link #error(long)}
+     */
+    void expected(long pos, Object item) {
+        if (pos < furthest) return;
+        if (pos > furthest) {
+            furthest = pos;
+            expectedCount = 0;
+        }
+        add(item);
+    }
+
+    /**
+     * replace what was expected at {@code pos} since {@code mark} by {@code item}, e.g. by the name of a rule failing
+     * there as a whole
+     */
+    void expected(long pos, int mark, Object item) {
+        if (pos != furthest) return;
+        expectedCount = mark;
+        add(item);
+    }
+
+    private void add(Object item) {
+        var expected = this.expected;
+        if (expected == null) this.expected = expected = new Object[16];
+        for (int i = 0; i < expectedCount; i++) if (expected[i] == item) return;
+        if (expectedCount < expected.length) expected[expectedCount++] = item;
+    }
+
+    /**
+     * the items expected at {@link #furthest} since it was {@code furthest} with {@code count} items, or {@code null}
+     */
+    Object[] expectedSince(long furthest, int count) {
+        int from = this.furthest == furthest ? count : 0;
+        return from < expectedCount ? Arrays.copyOfRange(expected, from, expectedCount) : null;
+    }
+
+    /**
+     * the error of a parse from {@code pos} that failed, at the furthest failure
+     */
+    ParseError error(long pos) {
+        if (furthest < pos) return new ParseError(pos, List.of());
+        var names = new TreeSet<String>();
+        for (int i = 0; i < expectedCount; i++) Parsers.expected_names(expected[i], names);
+        return new ParseError(furthest, List.copyOf(names));
+    }
+
+    /**
+     * give the memo entries of this parse up, releasing their values
+     */
+    void release() {
+        if (memo != null) memo.clear(generation);
+        memo = null;
+        memoInput = null;
+    }
+
+    /**
+     * memo table of this parse, taken from the thread pool on first use, in a new generation for a new input
+     */
+    MemoTable memo(Input in) {
+        var memo = this.memo;
+        if (memo == null) this.memo = memo = MemoTable.local(MemoTable.capacity(MemoTable.DEFAULT_MAX_BYTES));
+        if (memoInput != in) {
+            if (memoInput != null) memo.clear(generation);
+            memoInput = in;
+            generation = memo.nextGeneration();
+        }
+        return memo;
+    }
+
+    /**
+     * value of the primitive parsers, see {@link ByteParser}, {@link CharParser}, {@link IntParser} and {@link LongParser}
+     */
+    public long longValue() {
+        return longValue;
+    }
+
+    public void longValue(long value) {
+        this.longValue = value;
+    }
+
+    /**
+     * value of {@link DoubleParser}
+     */
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    public void doubleValue(double value) {
+        this.doubleValue = value;
+    }
+}
@@ -0,0 +1,86 @@
+package lost.parser.combinator;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * region {@code [offset, offset + length)} of an input addressed by {@code long} offsets, e.g. of a mapped file larger
+ * than 2 GB
+ * <p>
+ * a lighter value than a {@link ByteBuffer} slice, read in place by {@link #decode}, {@link #contentEquals} and
+ * {@link #contentHashCode}
+ */
+public record Span(Input input, long offset, long length) {
+
+    /**
+     * offset after the last byte
+     */
+    public long end() {
+        return offset + length;
+    }
+
+    public byte get(long index) {
+        return input.get(offset + index);
+    }
+
+    /**
+     * the bytes as a buffer, the length is at most 2 GB
+     */
+    public ByteBuffer asByteBuffer() {
+        return input.slice(offset, length);
+    }
+
+    public MemorySegment asSegment() {
+        return input.segment().asSlice(offset, length);
+    }
+
+    /**
+     * copy of the bytes, the length is at most 2 GB
+     */
+    public byte[] toByteArray() {
+        var bytes = new byte[Math.toIntExact(length)];
+        input.copy(offset, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    public String decode(Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * whether the bytes are {@code expect}, e.g. a literal encoded once
+     */
+    public boolean contentEquals(byte[] expect) {
+        if (length != expect.length) return false;
+        for (int i = 0; i < expect.length; i++) {
+            if (input.get(offset + i) != expect[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * whether the bytes are {@code expect} in UTF-8, compared without encoding while it is ASCII
+     */
+    public boolean contentEquals(String expect) {
+        int n = expect.length();
+        if (length < n) return false;
+        for (int i = 0; i < n; i++) {
+            var c = expect.charAt(i);
+            if (c >= 0x80) return contentEquals(expect.getBytes(StandardCharsets.UTF_8));
+            if (input.get(offset + i) != c) return false;
+        }
+        return length == n;
+    }
+
+    /**
+     * hash of the bytes, equal to {@link Arrays#hashCode(byte[])} of {@link #toByteArray()}
+     */
+    public int contentHashCode() {
+        int h = 1;
+        for (long i = offset, end = end(); i < end; i++) h = 31 * h + input.get(i);
+        return h;
+    }
+}
@@ -0,0 +1,106 @@
+package lost.parser.combinator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * token stream of a {@link Lexer}, stored as parallel int arrays of kinds, starts and lengths
+ * <p>
+ * the kind of a token is the index of its definition in the lexer, its text the bytes {@code [start, start + length)}
+ * of the source. {@link #input()} presents the stream to the parsers, one position per token read as the byte of its
+ * kind, so {@link Parsers#b}, {@link Parsers#oneOf} and the first byte dispatch of {@link Parsers#or} work on kinds,
+ * and {@link Lexer#token} gives the text
+ */
+public final class Tokens {
+
+    private final Input source;
+
+    private final List<String> names;
+
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    /**
+     * end of the lexed bytes
+     */
+    private long end;
+
+    private Input input;
+
+    Tokens(Input source, List<String> names, int capacity) {
+        this.source = source;
+        this.names = names;
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    void add(int kind, int start, int length) {
+        if (size == kinds.length) {
+            int capacity = Math.max(16, size << 1);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    void end(long end) {
+        this.end = end;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * name of the definition of token {@code i}
+     */
+    public String name(int i) {
+        return names.get(kinds[i]);
+    }
+
+    /**
+     * offset of token {@code i} in the source
+     */
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int length(int i) {
+        return lengths[i];
+    }
+
+    /**
+     * the bytes of token {@code i}
+     */
+    public Span text(int i) {
+        return source.span(starts[i], lengths[i]);
+    }
+
+    /**
+     * source offset of a position in {@link #input()}, e.g. of a {@link ParseError}: the start of the token there, or
+     * the end of the lexed bytes past the last token
+     */
+    public long offset(long pos) {
+        return pos < size ? starts[(int) pos] : end;
+    }
+
+    /**
+     * the stream as parse input, see {@link Parsers#parse(Parser, Tokens)}
+     */
+    public Input input() {
+        var input = this.input;
+        if (input == null) this.input = input = Input.of(this);
+        return input;
+    }
+}
@@ -0,0 +1,127 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parser.FAIL;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntPredicate;
+
+/**
+ * UTF-8 decoding in place, see {@link Parsers#codePoint()}
+ * <p>
+ * ASCII runs are skipped by {@link Scan#until} over a class of the interesting ASCII bytes plus every non-ASCII byte,
+ * so only the multi-byte sequences are decoded one by one
+ */
+final class Utf8 {
+
+    private Utf8() {}
+
+    /**
+     * bytes that can start a well-formed sequence
+     */
+    static final ByteClass LEADS = ByteClass.range(0x00, 0x7F).union(ByteClass.range(0xC2, 0xF4));
+
+    private static final ByteClass NON_ASCII = ByteClass.range(0x80, 0xFF);
+
+    /**
+     * stops of {@link #skipWhitespace}: ASCII non-whitespaces and the non-ASCII bytes
+     */
+    private static final ByteClass NOT_WHITESPACE = stops(c -> !Character.isWhitespace(c));
+
+    /**
+     * decode the code point at {@code pos} into {@link Sink#longValue}
+     *
+     * @return the end, or {@link Parser#FAIL} on a malformed, overlong or truncated sequence, or a surrogate
+     */
+    static long decode(Input in, long pos, Sink out) {
+        if (!in.has(pos, 1)) return FAIL;
+        int b = in.get(pos);
+        if (b >= 0) {
+            out.longValue = b;
+            return pos + 1;
+        }
+
+        int n, c, min;
+        if ((b & 0xE0) == 0xC0) {
+            n = 2;
+            c = b & 0x1F;
+            min = 0x80;
+        } else if ((b & 0xF0) == 0xE0) {
+            n = 3;
+            c = b & 0x0F;
+            min = 0x800;
+        } else if ((b & 0xF8) == 0xF0) {
+            n = 4;
+            c = b & 0x07;
+            min = 0x10000;
+        } else return FAIL;
+
+        if (!in.has(pos, n)) return FAIL;
+        for (int i = 1; i < n; i++) {
+            int next = in.get(pos + i);
+            if ((next & 0xC0) != 0x80) return FAIL;
+            c = c << 6 | next & 0x3F;
+        }
+        if (c < min || c > Character.MAX_CODE_POINT || is_surrogate(c)) return FAIL;
+
+        out.longValue = c;
+        return pos + n;
+    }
+
+    /**
+     * the UTF-8 bytes of a code point
+     */
+    static byte[] encode(int codePoint) {
+        if (!Character.isValidCodePoint(codePoint) || is_surrogate(codePoint))
+            throw new IllegalArgumentException("not a code point: " + codePoint);
+        return new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean is_surrogate(int c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+    /**
+     * the ASCII bytes accepted by {@code stop}, plus all the non-ASCII bytes, for {@link #until}
+     */
+    static ByteClass stops(IntPredicate stop) {
+        var stops = NON_ASCII;
+        for (int c = 0; c < 0x80; c++) if (stop.test(c)) stops = stops.union(ByteClass.of((byte) c));
+        return stops;
+    }
+
+    /**
+     * position of the first code point from {@code pos} accepted by {@code stop}, or the end of input
+     *
+     * @param stops {@link #stops} of {@code stop}
+     * @return the position, or {@link Parser#FAIL} on a malformed sequence before it, expecting a code point there
+     */
+    static long until(Input in, long pos, Sink out, ByteClass stops, IntPredicate stop) {
+        long p = pos;
+        while (true) {
+            p = Scan.until(in, p, stops);
+            if (!in.has(p, 1) || in.get(p) >= 0) return p;
+            var end = decode(in, p, out);
+            if (end < 0) {
+                out.expected(p, Parsers.codePoint());
+                return FAIL;
+            }
+            if (stop.test((int) out.longValue)) return p;
+            p = end;
+        }
+    }
+
+    /**
+     * position of the first code point from {@code pos} that is not a {@link Character#isWhitespace(int)}, malformed
+     * bytes are not whitespaces
+     */
+    static long skipWhitespace(Input in, long pos, Sink out) {
+        long p = pos;
+        while (true) {
+            p = Scan.until(in, p, NOT_WHITESPACE);
+            if (!in.has(p, 1) || in.get(p) >= 0) return p;
+            var end = decode(in, p, out);
+            if (end < 0 || !Character.isWhitespace((int) out.longValue)) return p;
+            p = end;
+        }
+    }
+}
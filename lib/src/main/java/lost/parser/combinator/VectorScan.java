@@ -0,0 +1,91 @@
+package lost.parser.combinator;
+
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_LE;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * vectorized loops of {@link Scan}, comparing a whole vector (32 or 64 bytes on AVX2 / AVX-512) per step
+ * <p>
+ * each loop stops at the last full vector and returns where it stopped, the caller finishes with the scalar loop
+ */
+final class VectorScan {
+    private VectorScan() {
+        throw new Error("Can not instantiate me !!!");
+    }
+
+    /**
+     * most byte ranges of a {@link ByteClass} matched per step
+     */
+    static final int MAX_RANGES = 4;
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+    /**
+     * whether vectors are wide enough to beat the scalar loops
+     */
+    static boolean available() {
+        return BYTES.length() >= 16;
+    }
+
+    /**
+     * see {@link Scan#until}
+     *
+     * @param ranges 1 to {@link #MAX_RANGES} inclusive ranges, see {@link ByteClass#ranges()}
+     */
+    static long until(MemorySegment segment, long from, long to, int[] ranges) {
+        if (ranges.length == 2) return until(segment, from, to, ranges[0], ranges[1]);
+
+        int last = ranges.length - 2;
+        int r1 = Math.min(2, last), r2 = Math.min(4, last), r3 = Math.min(6, last);
+        byte lo0 = (byte) ranges[0], span0 = (byte) (ranges[1] - ranges[0]);
+        byte lo1 = (byte) ranges[r1], span1 = (byte) (ranges[r1 + 1] - ranges[r1]);
+        byte lo2 = (byte) ranges[r2], span2 = (byte) (ranges[r2 + 1] - ranges[r2]);
+        byte lo3 = (byte) ranges[r3], span3 = (byte) (ranges[r3 + 1] - ranges[r3]);
+
+        int step = BYTES.length();
+        for (long bound = to - step; from <= bound; from += step) {
+            var v = ByteVector.fromMemorySegment(BYTES, segment, from, ByteOrder.nativeOrder());
+            var hit = v.sub(lo0)
+                    .compare(UNSIGNED_LE, span0)
+                    .or(v.sub(lo1).compare(UNSIGNED_LE, span1))
+                    .or(v.sub(lo2).compare(UNSIGNED_LE, span2))
+                    .or(v.sub(lo3).compare(UNSIGNED_LE, span3));
+            if (hit.anyTrue()) return from + hit.firstTrue();
+        }
+        return from;
+    }
+
+    private static long until(MemorySegment segment, long from, long to, int first, int last) {
+        byte lo = (byte) first, span = (byte) (last - first);
+
+        int step = BYTES.length();
+        for (long bound = to - step; from <= bound; from += step) {
+            var v = ByteVector.fromMemorySegment(BYTES, segment, from, ByteOrder.nativeOrder());
+            var hit = span == 0 ? v.eq(lo) : v.sub(lo).compare(UNSIGNED_LE, span);
+            if (hit.anyTrue()) return from + hit.firstTrue();
+        }
+        return from;
+    }
+
+    /**
+     * see {@link Scan#skipWhitespaces}, only the ASCII whitespaces {@code 0x09-0x0D} and {@code 0x1C-0x20} are
+     * skipped here, other Unicode whitespaces are left to the scalar loop
+     */
+    static long skipWhitespaces(MemorySegment segment, long from, long to, ByteOrder order) {
+        int step = SHORTS.length() * 2;
+        for (long bound = to - step; from <= bound; from += step) {
+            var v = ShortVector.fromMemorySegment(SHORTS, segment, from, order);
+            var ws = v.sub((short) 0x09)
+                    .compare(UNSIGNED_LE, (short) 4)
+                    .or(v.sub((short) 0x1C).compare(UNSIGNED_LE, (short) 4));
+            if (!ws.allTrue()) return from + 2L * ws.not().firstTrue();
+        }
+        return from;
+    }
+}
@@ -0,0 +1,96 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * compiled grammars against the interpreted ones, on random grammars and inputs
+ */
+class CompilerTest {
+
+    private static final String ALPHABET = "abc";
+
+    @SuppressWarnings("unchecked")
+    private static Parser<Object> any(Parser<?> parser) {
+        return (Parser<Object>) parser;
+    }
+
+    /**
+     * random grammar of the compiled nodes, with named rules and cuts around them
+     */
+    private static Parser<Object> grammar(Random random, int depth) {
+        int leaves = 7, nodes = depth == 0 ? 0 : 9;
+        return switch (random.nextInt(leaves + nodes)) {
+            case 0 -> any(Parsers.b((byte) ALPHABET.charAt(random.nextInt(3))));
+            case 1 -> any(Parsers.str(ALPHABET.charAt(random.nextInt(3)) + "" + ALPHABET.charAt(random.nextInt(3))));
+            case 2 -> any(Parsers.oneOf(ByteClass.range('a', 'a' + random.nextInt(3))).boxed());
+            case 3 -> any(Parsers.byteOf((byte) 'c').mapToObj(b -> (char) b));
+            case 4 -> any(Parsers.cut());
+            case 5 -> any(Parsers.end());
+            case 6 -> any(Parsers.takeWhile(ByteClass.of("ab")));
+            case 7, 8 -> {
+                int n = 1 + random.nextInt(4);
+                var alternatives = new Parser[n];
+                for (int i = 0; i < n; i++) alternatives[i] = grammar(random, depth - 1);
+                yield any(Parsers.or(alternatives));
+            }
+            case 9, 10 -> any(grammar(random, depth - 1).and(grammar(random, depth - 1), (a, b) -> List.of(a, b)));
+            case 11 -> any(Parsers.opt(grammar(random, depth - 1)));
+            case 12 -> {
+                int min = random.nextInt(3);
+                var parser = grammar(random, depth - 1);
+                yield any(min == 0 ? parser.zeroOrMany() : Parsers.repeat(parser, min, min + random.nextInt(2)));
+            }
+            case 13 -> any(Parsers.skipMany(grammar(random, depth - 1)));
+            case 14 -> any(Parsers.capture(grammar(random, depth - 1)));
+            default -> any(Parsers.named("r", grammar(random, depth - 1)));
+        };
+    }
+
+    private static String outcome(Parser<?> parser, Input in, long pos) {
+        var out = new Sink();
+        try {
+            var end = parser.parseAt(in, pos, out);
+            if (end < 0) return end + " " + out.error(pos).getMessage();
+            return end + " " + out.value();
+        } catch (NullPointerException e) {
+            // e.g. opt of a null value
+            return e.toString();
+        }
+    }
+
+    @Test
+    void compiledMatchesInterpreted() {
+        var random = new Random(7);
+        int compiled = 0;
+        for (int g = 0; g < 2_000; g++) {
+            var parser = grammar(random, 4);
+            var compiledParser = Parsers.compile(parser);
+            if (compiledParser != parser) compiled++;
+            for (int i = 0; i < 50; i++) {
+                var s = new StringBuilder();
+                for (int n = random.nextInt(6); n > 0; n--) s.append(ALPHABET.charAt(random.nextInt(3)));
+                var in = Input.of(ByteBuffer.wrap(s.toString().getBytes(StandardCharsets.US_ASCII)));
+                for (long pos = 0; pos <= Math.min(1, s.length()); pos++) {
+                    assertEquals(
+                            outcome(parser, in, pos),
+                            outcome(compiledParser, in, pos),
+                            () -> parser + " on " + s);
+                }
+            }
+        }
+        assertEquals(true, compiled > 1_000, "compiled " + compiled);
+    }
+
+    @Test
+    void compilesOr() {
+        var parser = Parsers.or(Parsers.str("ab"), Parsers.str("b"), Parsers.str("a"));
+        assertNotSame(parser, Parsers.compile(parser));
+    }
+}
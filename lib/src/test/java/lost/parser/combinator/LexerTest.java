@@ -0,0 +1,94 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LexerTest {
+
+    private static final Lexer LEXER = Lexer.builder()
+            .run("space", ByteClass.of(" "))
+            .literal("a", "a")
+            .literal("b", "b")
+            .literal("c", "c")
+            .ignore("space")
+            .build();
+
+    private static Tokens tokenize(String s) {
+        return LEXER.tokenize(ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void tokenInputReadsKinds() {
+        var in = tokenize("a b c a b c a b c").input();
+        int a = LEXER.kind("a"), b = LEXER.kind("b"), c = LEXER.kind("c");
+        var kinds = new byte[9];
+        for (int i = 0; i < 9; i += 3) {
+            kinds[i] = (byte) a;
+            kinds[i + 1] = (byte) b;
+            kinds[i + 2] = (byte) c;
+        }
+        assertEquals(9, in.limit());
+        assertEquals((byte) c, in.get(2));
+        assertEquals((char) (b << 8 | c), in.getChar(1));
+        assertEquals(ByteBuffer.wrap(kinds, 1, 8).order(ByteOrder.LITTLE_ENDIAN).getLong(), in.getLongLE(1));
+        var copy = new byte[9];
+        in.copy(0, copy, 0, 9);
+        assertArrayEquals(kinds, copy);
+        assertEquals(ByteBuffer.wrap(kinds, 3, 4), in.slice(3, 4));
+        assertEquals(0, in.slice(3, 4).position());
+        assertEquals(ByteBuffer.wrap(kinds), in.buffer());
+        assertEquals((byte) b, in.duplicate().get(4));
+    }
+
+    @Test
+    void longestTokenThenFirstDefined() {
+        var lexer = Lexer.builder()
+                .run("space", ByteClass.of(" \n"))
+                .literal("if", "if")
+                .literal("=", "=")
+                .literal("==", "==")
+                .regex("id", "[a-z]+")
+                .regex("number", "-?[0-9]+")
+                .ignore("space")
+                .build();
+        var tokens = lexer.tokenize(ByteBuffer.wrap("if iff == =x -12\n".getBytes(StandardCharsets.US_ASCII)));
+        var names = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) names.append(tokens.name(i)).append(' ');
+        assertEquals("if id == = id number ", names.toString());
+        assertEquals(3, tokens.start(1));
+        assertEquals("-12", tokens.text(5).decode(StandardCharsets.US_ASCII));
+        var bad = ByteBuffer.wrap("x ?".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(2, assertThrows(ParseError.class, () -> lexer.tokenize(bad)).offset());
+    }
+
+    @Test
+    void parsesTokens() {
+        var lexer = Lexer.builder()
+                .run("space", ByteClass.of(" "))
+                .literal("[", "[")
+                .literal("]", "]")
+                .regex("number", "-?[0-9]+")
+                .ignore("space")
+                .build();
+        var array = lexer.token("[")
+                .and(lexer.token("number").zeroOrMany(), (open, numbers) -> numbers)
+                .and(lexer.token("]"), (numbers, close) -> numbers);
+        var numbers = Parsers.parse(
+                array, lexer.tokenize(ByteBuffer.wrap("[ 1 -2  30 ]".getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(List.of("1", "-2", "30"), numbers.stream().map(n -> n.decode(StandardCharsets.US_ASCII)).toList());
+        // errors at the source offset of the token
+        var error = assertThrows(
+                ParseError.class,
+                () -> Parsers.parse(
+                        array, lexer.tokenize(ByteBuffer.wrap("[ 1 [".getBytes(StandardCharsets.US_ASCII)))));
+        assertEquals(4, error.offset());
+        assertEquals(List.of("]", "number"), error.expected());
+    }
+}
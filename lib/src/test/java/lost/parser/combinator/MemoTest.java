@@ -0,0 +1,138 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parsers.b;
+import static lost.parser.combinator.Parsers.named;
+import static lost.parser.combinator.Parsers.or;
+import static lost.parser.combinator.Parsers.str;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MemoTest {
+
+    private static Input input(String s) {
+        return Input.of(ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * the outcome of a top-level parse, the value or the error
+     */
+    private static String outcome(Parser<?> parser, String s) {
+        try {
+            return String.valueOf(parser.parse(ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII))).value());
+        } catch (ParseError e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    void hitReplaysExpected() {
+        var y = Parsers.memo(b((byte) 'y'));
+        var parser = or(b((byte) 'x').and(named("a", y), (x, a) -> a), b((byte) 'x').and(y, (x, a) -> a));
+        var plain = or(
+                b((byte) 'x').and(named("a", b((byte) 'y')), (x, a) -> a),
+                b((byte) 'x').and(b((byte) 'y'), (x, a) -> a));
+        // the rule replaces "y" by "a", then the hit expects "y" again
+        assertEquals(outcome(plain, "xq"), outcome(parser, "xq"));
+        assertEquals("parse error at 1, expected 'y' or a", outcome(parser, "xq"));
+    }
+
+    @Test
+    void hitRestoresDouble() {
+        var parser = Parsers.memo(Parsers.float64().boxed());
+        var out = new Sink();
+        var in = input("2.5");
+        assertEquals(3, parser.parseAt(in, 0, out));
+        out.doubleValue = 0;
+        out.value = null;
+        assertEquals(3, parser.parseAt(in, 0, out));
+        assertEquals(2.5, out.doubleValue);
+        assertEquals(2.5, (double) out.value());
+    }
+
+    @Test
+    void packratMatchesPlainParse() {
+        var random = new Random(8);
+        var plain = grammar();
+        var packrat = Parsers.packrat(grammar());
+        for (int i = 0; i < 20_000; i++) {
+            var s = new StringBuilder();
+            for (int n = random.nextInt(10); n > 0; n--) s.append("12()+x".charAt(random.nextInt(6)));
+            assertEquals(outcome(plain, s.toString()), outcome(packrat, s.toString()), s.toString());
+        }
+    }
+
+    @Test
+    void tinyPackratTableMatchesPlainParse() {
+        var random = new Random(9);
+        var plain = grammar();
+        var packrat = Parsers.packrat(grammar(), MemoTable.ENTRY_BYTES * 4);
+        for (int i = 0; i < 5_000; i++) {
+            var s = new StringBuilder();
+            for (int n = random.nextInt(30); n > 0; n--) s.append("12()+x".charAt(random.nextInt(6)));
+            assertEquals(outcome(plain, s.toString()), outcome(packrat, s.toString()), s.toString());
+        }
+    }
+
+    @Test
+    void directLeftRecursion() {
+        var num = Parsers.oneOf(ByteClass.range('0', '9')).mapToObj(b -> b - '0');
+        var expr = Parsers.<Integer>rule();
+        expr.define(or(expr.and(str("-"), (a, minus) -> a).and(num, (a, b) -> a - b), num));
+        assertEquals(-4, (int) expr.parse(ByteBuffer.wrap("9-8-5".getBytes(StandardCharsets.US_ASCII))).value());
+        var out = new Sink();
+        assertEquals(3, expr.parseAt(input("9-8-"), 0, out));
+        assertEquals(1, (int) out.value());
+    }
+
+    @Test
+    void indirectLeftRecursion() {
+        var num = Parsers.oneOf(ByteClass.range('0', '9')).mapToObj(b -> String.valueOf((char) b));
+        var a = Parsers.<String>rule();
+        var b = Parsers.<String>rule();
+        a.define(or(b.and(str("a"), (x, y) -> "(" + x + "a)"), num));
+        b.define(or(a.and(str("b"), (x, y) -> "(" + x + "b)"), num));
+        assertEquals("(((1b)a)b)", b.parse(ByteBuffer.wrap("1bab".getBytes(StandardCharsets.US_ASCII))).value());
+        assertEquals("(((1a)b)a)", a.parse(ByteBuffer.wrap("1aba".getBytes(StandardCharsets.US_ASCII))).value());
+    }
+
+    @Test
+    void newInputTakesNewGeneration() {
+        var parser = Parsers.memo(str("ab"));
+        var out = new Sink();
+        assertEquals(2, parser.parseAt(input("ab"), 0, out));
+        assertEquals(Parser.FAIL, parser.parseAt(input("xx"), 0, out));
+        out.reset();
+        assertEquals(2, parser.parseAt(input("ab"), 0, out));
+    }
+
+    @Test
+    void finishedParseReleasesValues() {
+        var parser = Parsers.packrat(or(Parsers.capture(str("ab")), Parsers.capture(str("x"))));
+        var in = new WeakReference<>(input("ab"));
+        assertEquals(2, parser.parseAt(in.get(), 0, new Sink()));
+        // the spans memoized by the pooled table refer to the input
+        for (int i = 0; i < 10 && in.get() != null; i++) System.gc();
+        assertNull(in.get());
+    }
+
+    /**
+     * sums of left-recursive sums, backtracking into the same rules at the same positions
+     */
+    private static Parser<String> grammar() {
+        var sum = Parsers.<String>rule();
+        var atom = named(
+                "atom",
+                or(
+                        str("1"),
+                        str("2"),
+                        str("(").and(sum, (open, e) -> e).and(str(")"), (e, close) -> "(" + e + ")")));
+        sum.define(or(sum.and(str("+"), (a, plus) -> a).and(atom, (a, b) -> a + "+" + b), atom));
+        return named("sum", sum).and(or(str("x"), str("")), (e, x) -> e + x);
+    }
+}
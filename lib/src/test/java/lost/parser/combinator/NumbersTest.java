@@ -0,0 +1,109 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class NumbersTest {
+
+    private static Input input(byte[] bytes) {
+        return Input.of(ByteBuffer.wrap(bytes));
+    }
+
+    private static Input input(String s) {
+        return input(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void stopsAtNonAsciiAfterDigits() {
+        for (int b = 0x80; b <= 0xFF; b++) {
+            var bytes = new byte[] {'1', '2', (byte) b};
+            var out = new Sink();
+            assertEquals(2, Parsers.int32().parseAt(input(bytes), 0, out), "int32 before " + b);
+            assertEquals(12, out.longValue);
+            assertEquals(2, Parsers.int64().parseAt(input(bytes), 0, out), "int64 before " + b);
+            assertEquals(12, out.longValue);
+            assertEquals(2, Parsers.float64().parseAt(input(bytes), 0, out), "float64 before " + b);
+            assertEquals(12.0, out.doubleValue);
+        }
+        // in the 8 bytes read at once, after the dot and in the exponent
+        var digits = "12345678\u00A0".getBytes(StandardCharsets.ISO_8859_1);
+        var out = new Sink();
+        assertEquals(8, Parsers.int64().parseAt(input(digits), 0, out));
+        assertEquals(12345678, out.longValue);
+        assertEquals(3, Parsers.float64().parseAt(input("1.5\u0085"), 0, out));
+        assertEquals(1.5, out.doubleValue);
+        assertEquals(3, Parsers.float64().parseAt(input("1e2\u00A0"), 0, out));
+        assertEquals(100.0, out.doubleValue);
+    }
+
+    @Test
+    void int32Bounds() {
+        var out = new Sink();
+        assertEquals(10, Parsers.int32().parseAt(input("2147483647"), 0, out));
+        assertEquals(Integer.MAX_VALUE, out.longValue);
+        assertEquals(11, Parsers.int32().parseAt(input("-2147483648"), 0, out));
+        assertEquals(Integer.MIN_VALUE, out.longValue);
+        assertEquals(Parser.FAIL, Parsers.int32().parseAt(input("2147483648"), 0, out));
+        assertEquals(Parser.FAIL, Parsers.int32().parseAt(input("-2147483649"), 0, out));
+        assertEquals(Parser.FAIL, Parsers.int32().parseAt(input("99999999999999999"), 0, out));
+    }
+
+    @Test
+    void int64Bounds() {
+        var out = new Sink();
+        assertEquals(19, Parsers.int64().parseAt(input("9223372036854775807"), 0, out));
+        assertEquals(Long.MAX_VALUE, out.longValue);
+        assertEquals(20, Parsers.int64().parseAt(input("-9223372036854775808"), 0, out));
+        assertEquals(Long.MIN_VALUE, out.longValue);
+        assertEquals(Parser.FAIL, Parsers.int64().parseAt(input("9223372036854775808"), 0, out));
+        assertEquals(Parser.FAIL, Parsers.int64().parseAt(input("-9223372036854775809"), 0, out));
+        assertEquals(Parser.FAIL, Parsers.int64().parseAt(input("+"), 0, out));
+        assertEquals(24, Parsers.int64().parseAt(input("000000000000000000000042"), 0, out));
+        assertEquals(42, out.longValue);
+    }
+
+    @Test
+    void int64MatchesLongParseLong() {
+        var random = new Random(22);
+        var out = new Sink();
+        for (int i = 0; i < 100_000; i++) {
+            long v = random.nextLong() >> random.nextInt(64);
+            var s = Long.toString(v);
+            assertEquals(s.length(), Parsers.int64().parseAt(input(s + ","), 0, out), s);
+            assertEquals(v, out.longValue, s);
+        }
+    }
+
+    @Test
+    void float64MatchesDoubleParseDouble() {
+        var random = new Random(22);
+        var out = new Sink();
+        for (int i = 0; i < 200_000; i++) {
+            var s =
+                    switch (i % 4) {
+                        case 0 -> Double.toString(Double.longBitsToDouble(random.nextLong()));
+                        case 1 -> Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+                        case 2 -> String.format(Locale.ROOT, "%." + random.nextInt(25) + "e", random.nextDouble());
+                        default -> digits(random, 1 + random.nextInt(30))
+                                + "."
+                                + digits(random, random.nextInt(30))
+                                + "e"
+                                + (random.nextInt(700) - 350);
+                    };
+            if (s.contains("N") || s.contains("I")) continue;
+            assertEquals(s.length(), Parsers.float64().parseAt(input(s + " "), 0, out), s);
+            assertEquals(Double.parseDouble(s), out.doubleValue, s);
+        }
+    }
+
+    private static String digits(Random random, int n) {
+        var digits = new StringBuilder();
+        for (int i = 0; i < n; i++) digits.append((char) ('0' + random.nextInt(10)));
+        return digits.toString();
+    }
+}
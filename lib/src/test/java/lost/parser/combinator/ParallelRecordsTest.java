@@ -0,0 +1,57 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class ParallelRecordsTest {
+
+    private static final ByteClass NEWLINE = ByteClass.of("\n");
+
+    /**
+     * {@code key=number}
+     */
+    private static final Parser<String> RECORD = Parsers.takeWhile(ByteClass.range('a', 'z'))
+            .and(Parsers.str("="), (key, eq) -> StandardCharsets.US_ASCII.decode(key).toString())
+            .and(Parsers.int64().boxed(), (key, value) -> key + value);
+
+    @Test
+    void recordsInInputOrder() {
+        var random = new Random(15);
+        var text = new StringBuilder();
+        var expected = new ArrayList<String>();
+        while (text.length() < 1 << 20) {
+            var key = "k".repeat(1 + random.nextInt(5));
+            long value = random.nextInt();
+            text.append(key).append('=').append(value).append('\n');
+            expected.add(key + value);
+        }
+        var bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+        assertEquals(expected, Parsers.parallelRecords(ByteBuffer.wrap(bytes), NEWLINE, RECORD));
+        assertEquals(expected, Parsers.parallelRecords(MemorySegment.ofArray(bytes), NEWLINE, RECORD));
+        // without the trailing delimiter, from the position
+        var buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 1).position(text.indexOf("\n") + 1);
+        assertEquals(expected.subList(1, expected.size()), Parsers.parallelRecords(buffer, NEWLINE, RECORD));
+        var counts = Collectors.groupingByConcurrent((String s) -> s, Collectors.counting());
+        var counted = Parsers.parallelRecords(ByteBuffer.wrap(bytes), NEWLINE, RECORD, counts);
+        assertEquals(expected.size(), counted.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void recordMustMatchWhole() {
+        var bytes = "a=1\nb=2x\nc=3\n".getBytes(StandardCharsets.US_ASCII);
+        var error = assertThrows(
+                ParseError.class, () -> Parsers.parallelRecords(ByteBuffer.wrap(bytes), NEWLINE, RECORD));
+        assertEquals(7, error.offset());
+        // up to the bad record
+        assertEquals(List.of("a1"), Parsers.parallelRecords(ByteBuffer.wrap(bytes, 0, 4), NEWLINE, RECORD));
+    }
+}
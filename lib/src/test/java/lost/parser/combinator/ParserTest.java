@@ -0,0 +1,57 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ParserTest {
+
+    /**
+     * a parser only implementing {@link Parser#parse}, reading a char
+     */
+    private static final Parser<Character> CHAR = input -> {
+        if (input.remaining() < 2) throw new ParseError(input.position(), List.of("char"));
+        var c = input.getChar();
+        return new ParseResult<>(c, input);
+    };
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void adaptsParseFromAnyPosition() {
+        var out = new Sink();
+        var in = Input.of(ByteBuffer.wrap(bytes("xxab")));
+        assertEquals(4, CHAR.parseAt(in, 2, out));
+        assertEquals((char) ('a' << 8 | 'b'), (char) out.value());
+        assertEquals(Parser.FAIL, CHAR.parseAt(in, 3, out));
+    }
+
+    @Test
+    void adaptsParseKeepingTheByteOrder() {
+        var out = new Sink();
+        var in = Input.of(ByteBuffer.wrap(bytes("xab")).order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(3, CHAR.parseAt(in, 1, out));
+        assertEquals((char) ('b' << 8 | 'a'), (char) out.value());
+    }
+
+    @Test
+    void adaptsParseOnSegments() {
+        var out = new Sink();
+        var in = Input.of(MemorySegment.ofArray(bytes("xxab")));
+        assertEquals(4, CHAR.parseAt(in, 2, out));
+        assertEquals((char) ('a' << 8 | 'b'), (char) out.value());
+    }
+
+    @Test
+    void adaptsParseInsideCombinators() {
+        var parser = Parsers.and(Parsers.b((byte) 'x'), CHAR, (x, c) -> c);
+        assertEquals((char) ('a' << 8 | 'b'), (char) parser.parse(ByteBuffer.wrap(bytes("xab"))).value());
+    }
+}
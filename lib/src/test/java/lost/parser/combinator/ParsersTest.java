@@ -0,0 +1,233 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parsers.and;
+import static lost.parser.combinator.Parsers.b;
+import static lost.parser.combinator.Parsers.cut;
+import static lost.parser.combinator.Parsers.named;
+import static lost.parser.combinator.Parsers.or;
+import static lost.parser.combinator.Parsers.str;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ParsersTest {
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Input input(String s) {
+        return Input.of(buffer(s));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.US_ASCII.decode(buffer.duplicate()).toString();
+    }
+
+    @Test
+    void failsWithoutThrowing() {
+        var out = new Sink();
+        for (var parser : List.<Parser<?>>of(
+                b((byte) 'x'),
+                Parsers.ch('x'),
+                str("xy"),
+                Parsers.end(),
+                or(str("x"), str("y")),
+                and(str("a"), str("x"), (a, x) -> x),
+                Parsers.repeat(str("a"), 3, 3),
+                Parsers.skipMany1(str("x")),
+                Parsers.capture(str("x")),
+                Parsers.commit(str("x")),
+                Parsers.int32().boxed(),
+                Parsers.utf8Char(0xE9),
+                Parsers.regex("a+b"),
+                named("x", str("x")))) {
+            assertTrue(parser.parseAt(input("aaz"), 0, out) < 0, parser::toString);
+        }
+    }
+
+    @Test
+    void topLevelErrorAtFurthestFailure() {
+        var parser = and(str("a"), or(str("b"), named("c", str("cd"))), (a, b) -> b);
+        var error = assertThrows(ParseError.class, () -> parser.parse(buffer("ax")));
+        assertEquals(1, error.offset());
+        assertEquals(List.of("\"b\"", "c"), error.expected());
+        // a deeper failure of a later alternative wins
+        error = assertThrows(ParseError.class, () -> parser.parse(buffer("acx")));
+        assertEquals(1, error.offset());
+        assertEquals(List.of("\"b\"", "c"), error.expected());
+        var deeper = and(str("a"), or(str("b"), str("c").and(str("d"), (c, d) -> d)), (a, b) -> b);
+        error = assertThrows(ParseError.class, () -> deeper.parse(buffer("acx")));
+        assertEquals(2, error.offset());
+        assertEquals(List.of("\"d\""), error.expected());
+        // an odd byte where a char is due
+        var chars = ByteBuffer.wrap(new byte[] {0, 'a', 0});
+        error = assertThrows(ParseError.class, () -> Parsers.untilChar(c -> c == 'z', false).parse(chars));
+        assertEquals(2, error.offset());
+        assertEquals(List.of("char"), error.expected());
+    }
+
+    @Test
+    void parseMovesThePosition() {
+        var buffer = buffer("xabc");
+        buffer.position(1);
+        var result = str("ab").parse(buffer);
+        assertEquals("ab", result.value());
+        assertEquals(3, result.rest().position());
+        assertThrows(ParseError.class, () -> str("x").parse(buffer));
+        assertEquals(3, buffer.position());
+    }
+
+    @Test
+    void orTriesAlternativesInOrder() {
+        Parser<String> opaque = input -> new ParseResult<>("opaque", input);
+        var parser = or(str("ab"), str("a"), opaque);
+        var out = new Sink();
+        assertEquals(2, parser.parseAt(input("ab"), 0, out));
+        assertEquals("ab", out.value());
+        assertEquals(1, parser.parseAt(input("ac"), 0, out));
+        assertEquals("a", out.value());
+        // an alternative without known first bytes is never skipped
+        assertEquals(0, parser.parseAt(input("z"), 0, out));
+        assertEquals("opaque", out.value());
+        assertEquals(0, parser.parseAt(input(""), 0, out));
+        // a nullable alternative is tried at the end of input
+        var optional = or(str("a"), Parsers.opt(str("b")).and(Parsers.end(), (b, end) -> "none"));
+        assertEquals(0, optional.parseAt(input(""), 0, out));
+        assertEquals("none", out.value());
+    }
+
+    @Test
+    void cutStopsBacktracking() {
+        var keyword = or(
+                and(str("if"), and(cut(), str("("), (c, open) -> open), (k, open) -> "if"),
+                str("ifx"));
+        var out = new Sink();
+        assertEquals(3, keyword.parseAt(input("if("), 0, out));
+        assertEquals(Parser.ERROR, keyword.parseAt(input("ifx"), 0, new Sink()));
+        var error = assertThrows(ParseError.class, () -> keyword.parse(buffer("ifx")));
+        assertEquals(2, error.offset());
+        // a plain failure before the cut still backtracks
+        assertEquals(3, or(and(str("i"), str("x"), (i, x) -> x), str("ifx")).parseAt(input("ifx"), 0, new Sink()));
+    }
+
+    @Test
+    void commitFailsHard() {
+        var parser = or(and(str("a"), Parsers.commit(str("b")), (a, b) -> b), str("ac"));
+        assertEquals(Parser.ERROR, parser.parseAt(input("ac"), 0, new Sink()));
+        assertEquals(2, parser.parseAt(input("ab"), 0, new Sink()));
+    }
+
+    @Test
+    void byteClassScans() {
+        var delimiters = ByteClass.of(",;");
+        assertTrue(delimiters.contains((byte) ';'));
+        assertTrue(!delimiters.contains((byte) 'a'));
+        assertEquals(256 - 2, delimiters.negate().cardinality());
+
+        var s = "x".repeat(100) + ";rest";
+        assertEquals("x".repeat(100), text(Parsers.untilByte(delimiters, false).parse(buffer(s)).value()));
+        assertEquals("x".repeat(100) + ";", text(Parsers.untilByte(delimiters, true).parse(buffer(s)).value()));
+        assertEquals(
+                text(Parsers.untilByte(b -> b == ';' || b == ',', true).parse(buffer(s)).value()),
+                text(Parsers.untilByte(delimiters, true).parse(buffer(s)).value()));
+        assertEquals("abc", text(Parsers.untilByte(delimiters, true).parse(buffer("abc")).value()));
+        assertEquals("aab", text(Parsers.takeWhile(ByteClass.of("ab")).parse(buffer("aabc")).value()));
+        var out = new Sink();
+        assertEquals(3, Parsers.skipWhile(ByteClass.of("ab")).parseAt(input("aabc"), 0, out));
+    }
+
+    @Test
+    void spansReferToTheInput() {
+        var in = input("key=value;");
+        var out = new Sink();
+        assertEquals(3, Parsers.untilByteSpan(ByteClass.of("="), false).parseAt(in, 0, out));
+        Span span = out.value();
+        assertEquals(new Span(in, 0, 3), span);
+        assertTrue(span.contentEquals("key"));
+        assertEquals("key", span.decode(StandardCharsets.US_ASCII));
+        var capture = Parsers.capture(and(str("key"), str("="), (k, e) -> e));
+        assertEquals(4, capture.parseAt(in, 0, out));
+        assertEquals("key=", out.<Span>value().decode(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void quantifiers() {
+        var any = Parsers.anyByte().mapToObj(b -> (char) b);
+        var text = "<!--a-->b-->";
+        var lazy = Parsers.repeat(any, 0, Integer.MAX_VALUE, Quantifier.LAZY, str("-->"), (chars, end) -> chars.size());
+        var greedy =
+                Parsers.repeat(any, 0, Integer.MAX_VALUE, Quantifier.GREEDY, str("-->"), (chars, end) -> chars.size());
+        var possessive = Parsers.repeat(
+                any, 0, Integer.MAX_VALUE, Quantifier.POSSESSIVE, str("-->"), (chars, end) -> chars.size());
+        var out = new Sink();
+        assertEquals(8, lazy.parseAt(input(text), 4, out));
+        assertEquals(1, (int) out.value());
+        assertEquals(12, greedy.parseAt(input(text), 4, out));
+        assertEquals(5, (int) out.value());
+        assertEquals(Parser.FAIL, possessive.parseAt(input(text), 4, out));
+    }
+
+    @Test
+    void optAndRepeatValues() {
+        var out = new Sink();
+        assertEquals(0, Parsers.opt(str("a")).parseAt(input("b"), 0, out));
+        assertEquals(Optional.empty(), out.value());
+        assertEquals(4, Parsers.zeroOrMany(str("ab")).parseAt(input("ababa"), 0, out));
+        assertEquals(List.of("ab", "ab"), out.value());
+        assertEquals(Parser.FAIL, Parsers.repeat(str("ab"), 3).parseAt(input("ababa"), 0, out));
+        assertEquals(4, Parsers.repeatFold(str("ab"), 0, 5, "", String::concat).parseAt(input("ababa"), 0, out));
+        assertEquals("abab", out.value());
+        assertEquals(4, Parsers.count(str("ab")).parseAt(input("ababa"), 0, out));
+        assertEquals(2, out.longValue());
+    }
+
+    @Test
+    void parsesSegments() {
+        var bytes = "12,abc".getBytes(StandardCharsets.US_ASCII);
+        var parser = Parsers.int32()
+                .boxed()
+                .and(str(","), (n, comma) -> n)
+                .and(Parsers.capture(str("abc")), (n, abc) -> abc);
+        var span = Parsers.parse(parser, MemorySegment.ofArray(bytes));
+        assertEquals(3, span.offset());
+        assertEquals("abc", span.decode(StandardCharsets.US_ASCII));
+        var x = MemorySegment.ofArray(new byte[] {'x'});
+        var error = assertThrows(ParseError.class, () -> Parsers.parse(parser, x));
+        assertEquals(List.of("int32"), error.expected());
+    }
+
+    @Test
+    void parsesFilesAcrossWindows() throws Exception {
+        var file = Files.createTempFile("parse", ".txt");
+        try {
+            Files.writeString(file, "ab".repeat(1_000), StandardCharsets.US_ASCII);
+            var count = Parsers.parseFile(file, Parsers.count(str("ab")).boxed(), 16);
+            assertEquals(1_000, (int) count);
+            Files.writeString(file, "ab".repeat(100) + "x", StandardCharsets.US_ASCII);
+            var whole = Parsers.zeroOrMany(str("ab")).and(Parsers.end(), (ab, end) -> ab);
+            var error = assertThrows(ParseError.class, () -> Parsers.parseFile(file, whole, 16));
+            assertEquals(200, error.offset());
+            // a parser without a parseAt of its own sees the rest of the file, not the rest of the window
+            Parser<String> rest = input -> {
+                var value = text(input);
+                return new ParseResult<>(value, input.position(input.limit()));
+            };
+            var text = "hello world, over more than one window";
+            Files.writeString(file, text, StandardCharsets.US_ASCII);
+            assertEquals(text, Parsers.parseFile(file, rest, 4));
+            var tail = str("hello").and(rest, (hello, r) -> r);
+            assertEquals(text.substring(5), Parsers.parseFile(file, tail, 4));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parsers.named;
+import static lost.parser.combinator.Parsers.or;
+import static lost.parser.combinator.Parsers.str;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+class ProfilerTest {
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Parser<String> grammar() {
+        var prefix = named("prefix", str("ab"));
+        return or(
+                named("abc", prefix.and(str("c"), (a, b) -> a + b)),
+                named("abd", prefix.and(str("d"), (a, b) -> a + b)));
+    }
+
+    @Test
+    void countsNamedRules() {
+        var profiler = Parsers.profile(grammar());
+        assertEquals("abd", profiler.parse(buffer("abd")).value());
+        var stats = profiler.stats().stream().collect(Collectors.toMap(Profiler.Stats::name, Function.identity()));
+        assertEquals(2, stats.get("prefix").invocations());
+        assertEquals(2, stats.get("prefix").successes());
+        assertEquals(1, stats.get("abc").failures());
+        assertEquals(1, stats.get("abd").successes());
+        assertEquals(3, stats.get("abd").bytes());
+        // the second alternative parses the prefix again
+        assertEquals(2, stats.get("prefix").backtracked());
+        profiler.reset();
+        assertEquals(Map.of(), profiler.stats().stream().collect(Collectors.toMap(Profiler.Stats::name, s -> s)));
+    }
+
+    @Test
+    void recordsEventsWhileEnabled() throws Exception {
+        var parser = grammar();
+        parser.parse(buffer("abd"));
+        var file = Files.createTempFile("parse", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("lost.parser.combinator.Parse");
+            recording.enable("lost.parser.combinator.Rule").withThreshold(Duration.ZERO);
+            recording.start();
+            parser.parse(buffer("abd"));
+            recording.stop();
+            recording.dump(file);
+        }
+        var events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        var rules = events.stream()
+                .filter(e -> e.getEventType().getName().equals("lost.parser.combinator.Rule"))
+                .map(e -> e.getString("rule") + ":" + e.getBoolean("success"))
+                .sorted()
+                .toList();
+        assertEquals(List.of("abc:false", "abd:true", "prefix:true", "prefix:true"), rules);
+        var parses = events.stream()
+                .filter(e -> e.getEventType().getName().equals("lost.parser.combinator.Parse"))
+                .toList();
+        assertEquals(1, parses.size());
+        var parse = parses.get(0);
+        assertTrue(parse.getBoolean("success"));
+        assertEquals(3, parse.getLong("inputSize"));
+    }
+}
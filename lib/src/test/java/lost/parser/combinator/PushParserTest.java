@@ -0,0 +1,82 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parsers.str;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PushParserTest {
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * numbers separated by commas up to a semicolon
+     */
+    private static Parser<List<Long>> message() {
+        var number = Parsers.int64().boxed();
+        return number.and(str(",").and(number, (comma, n) -> n).zeroOrMany(), (first, rest) -> {
+                    List<Long> numbers = new ArrayList<>(rest);
+                    numbers.add(0, first);
+                    return numbers;
+                })
+                .and(str(";"), (numbers, end) -> numbers);
+    }
+
+    @Test
+    void chunksParseLikeTheWholeMessage() {
+        var random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            var s = new StringBuilder();
+            for (int n = 1 + random.nextInt(20); n > 0; n--) {
+                s.append(random.nextLong() >> random.nextInt(64)).append(',');
+            }
+            s.setCharAt(s.length() - 1, ';');
+            var text = s + "rest";
+            var expected = message().parse(buffer(text)).value();
+
+            var push = Parsers.push(message());
+            PushParser.Result<List<Long>> result = new PushParser.NeedMore<>();
+            int pos = 0;
+            while (result instanceof PushParser.NeedMore<List<Long>> && pos < text.length()) {
+                int end = Math.min(text.length(), pos + 1 + random.nextInt(8));
+                result = push.feed(buffer(text.substring(pos, end)));
+                pos = end;
+            }
+            var done = assertInstanceOf(PushParser.Done.class, result);
+            assertEquals(expected, done.value());
+            // the bytes fed after the match, from the last chunk
+            var rest = StandardCharsets.US_ASCII.decode(done.rest()) + text.substring(pos);
+            assertEquals("rest", rest);
+        }
+    }
+
+    @Test
+    void finishEndsTheInput() {
+        var push = Parsers.push(Parsers.zeroOrMany(str("ab")));
+        assertInstanceOf(PushParser.NeedMore.class, push.feed(buffer("aba")));
+        assertInstanceOf(PushParser.NeedMore.class, push.feed(buffer("b")));
+        var done = assertInstanceOf(PushParser.Done.class, push.finish());
+        assertEquals(List.of("ab", "ab"), done.value());
+        assertThrows(IllegalStateException.class, () -> push.feed(buffer("ab")));
+    }
+
+    @Test
+    void errorsAtTheFurthestFailure() {
+        var push = Parsers.push(message());
+        assertInstanceOf(PushParser.NeedMore.class, push.feed(buffer("12,3")));
+        var error = assertInstanceOf(PushParser.Error.class, push.feed(buffer("4,x")));
+        assertEquals(6, error.error().offset());
+        var truncated = Parsers.push(message());
+        truncated.feed(buffer("12,"));
+        assertInstanceOf(PushParser.Error.class, truncated.finish());
+    }
+}
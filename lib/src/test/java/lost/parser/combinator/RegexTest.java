@@ -0,0 +1,75 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * the DFA regexes against {@link Pattern}, by the longest prefix it matches whole
+ */
+class RegexTest {
+
+    private static String pattern(Random random, int depth) {
+        return switch (random.nextInt(depth == 0 ? 4 : 10)) {
+            case 0 -> "a";
+            case 1 -> "b";
+            case 2 -> "[ab]";
+            case 3 -> ".";
+            case 4, 5 -> pattern(random, depth - 1) + pattern(random, depth - 1);
+            case 6 -> "(" + pattern(random, depth - 1) + "|" + pattern(random, depth - 1) + ")";
+            case 7 -> "(" + pattern(random, depth - 1) + ")" + "*+?".charAt(random.nextInt(3));
+            case 8 -> "(" + pattern(random, depth - 1) + "){" + random.nextInt(2) + "," + (2 + random.nextInt(2)) + "}";
+            default -> "[^a]";
+        };
+    }
+
+    private static long longestMatch(Pattern pattern, String s) {
+        for (int end = s.length(); end >= 0; end--) {
+            if (pattern.matcher(s.substring(0, end)).matches()) return end;
+        }
+        return Parser.FAIL;
+    }
+
+    @Test
+    void matchesLikeJavaRegex() {
+        var random = new Random(24);
+        for (int p = 0; p < 500; p++) {
+            var pattern = pattern(random, 3);
+            var regex = Parsers.regex(pattern);
+            var java = Pattern.compile(pattern);
+            for (int i = 0; i < 40; i++) {
+                var s = new StringBuilder();
+                for (int n = random.nextInt(8); n > 0; n--) s.append("abc".charAt(random.nextInt(3)));
+                var in = Input.of(ByteBuffer.wrap(s.toString().getBytes(StandardCharsets.US_ASCII)));
+                assertEquals(longestMatch(java, s.toString()), regex.parseAt(in, 0, new Sink()), pattern + " on " + s);
+            }
+        }
+    }
+
+    @Test
+    void escapesAndClasses() {
+        var out = new Sink();
+        var number = Parsers.regex("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+        var in = Input.of(ByteBuffer.wrap("-12.5e+3,".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(8, number.parseAt(in, 0, out));
+        assertEquals(new Span(in, 0, 8), out.value());
+        var word = Parsers.regex("\\w+\\s*\\x3d");
+        var assignment = Input.of(ByteBuffer.wrap("key_1 =x".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(7, word.parseAt(assignment, 0, out));
+        // a non-ASCII literal matches its UTF-8 bytes
+        var utf8 = Input.of(ByteBuffer.wrap("\u00E9\u00E9x".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, Parsers.regex("\u00E9+").parseAt(utf8, 0, out));
+    }
+
+    @Test
+    void rejectsUnsupportedPatterns() {
+        for (var pattern : new String[] {"(a", "a)", "^a", "a*?", "(?=a)", "\\1", "[b-a]"}) {
+            assertThrows(IllegalArgumentException.class, () -> Parsers.regex(pattern), pattern);
+        }
+    }
+}
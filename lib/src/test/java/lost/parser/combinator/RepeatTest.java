@@ -0,0 +1,128 @@
+package lost.parser.combinator;
+
+import static lost.parser.combinator.Parsers.b;
+import static lost.parser.combinator.Parsers.opt;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RepeatTest {
+
+    private static Input input(String s) {
+        return Input.of(ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void repeatFoldStopsOnEmptyMatch() {
+        var fold = Parsers.repeatFold(opt(b((byte) 'x')), 0, Integer.MAX_VALUE, 0, (n, v) -> n + 1);
+        var out = new Sink();
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertEquals(0, fold.parseAt(input("y"), 0, out));
+            assertEquals(1, (int) out.value());
+            assertEquals(2, fold.parseAt(input("xxy"), 0, out));
+            assertEquals(3, (int) out.value());
+        });
+    }
+
+    @Test
+    void primitiveRepeatFoldStopsOnEmptyMatch() {
+        var ints = Parsers.repeatFoldInts(Parsers.count(b((byte) 'x')), 0, Integer.MAX_VALUE, 0, Integer::sum);
+        LongParser empty = (in, pos, out) -> {
+            out.longValue = 1;
+            return pos;
+        };
+        var longs = Parsers.repeatFoldLongs(empty, 2, Integer.MAX_VALUE, 0L, Long::sum);
+        var out = new Sink();
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertEquals(2, ints.parseAt(input("xxy"), 0, out));
+            assertEquals(2, out.longValue);
+            assertEquals(0, longs.parseAt(input("y"), 0, out));
+            assertEquals(2, out.longValue);
+        });
+    }
+
+    @Test
+    void skipManyStopsOnEmptyMatch() {
+        var skip = Parsers.skipMany(opt(b((byte) 'x')));
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertEquals(3, skip.parseAt(input("xxxy"), 0, new Sink()));
+        });
+    }
+
+    @Test
+    void primitiveRepeatsStopOnEmptyMatch() {
+        IntParser empty = (in, pos, out) -> {
+            out.longValue = 7;
+            return pos;
+        };
+        var out = new Sink();
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertEquals(0, Parsers.zeroOrManyInts(empty).parseAt(input("y"), 0, out));
+            assertArrayEquals(new int[] {7}, (int[]) out.value());
+            assertEquals(0, Parsers.repeatInts(empty, 3, Integer.MAX_VALUE).parseAt(input("y"), 0, out));
+            assertArrayEquals(new int[] {7, 7, 7}, (int[]) out.value());
+        });
+    }
+
+    @Test
+    void primitiveRepeats() {
+        var out = new Sink();
+        var bytes = Parsers.oneOf(ByteClass.range('a', 'z')).repeat(2, 40);
+        assertEquals(30, bytes.parseAt(input("abcdefghijklmnopqrstuvwxyzabcd!"), 0, out));
+        assertEquals("abcdefghijklmnopqrstuvwxyzabcd", new String((byte[]) out.value(), StandardCharsets.US_ASCII));
+        assertEquals(Parser.FAIL, bytes.parseAt(input("a!"), 0, out));
+
+        var ints = Parsers.int32().and(Parsers.byteOf((byte) ',').mapToInt(b -> 0), Integer::sum);
+        assertEquals(9, ints.zeroOrMany().parseAt(input("1,-2,300,"), 0, out));
+        assertArrayEquals(new int[] {1, -2, 300}, (int[]) out.value());
+        assertEquals(8, Parsers.int64().repeat(1).parseAt(input("12345678"), 0, out));
+        assertArrayEquals(new long[] {12345678}, (long[]) out.value());
+        assertEquals(4, Parsers.anyChar().repeat(1, 2).parseAt(input("abcdef"), 0, out));
+        assertArrayEquals(new char[] {'a' << 8 | 'b', 'c' << 8 | 'd'}, (char[]) out.value());
+    }
+
+    @Test
+    void primitiveNodesHaveLookahead() {
+        var digits = Parsers.oneOf(ByteClass.range('0', '9'));
+        for (var parser : new Object[] {
+            digits.zeroOrMany(),
+            digits.boxed(),
+            digits.mapToObj(b -> b),
+            Parsers.int32().boxed(),
+            Parsers.int32().zeroOrMany(),
+            Parsers.int64().boxed(),
+            Parsers.int64().mapToObj(v -> v),
+            Parsers.float64().boxed(),
+            Parsers.float64().mapToObj(v -> v),
+            Parsers.count(digits.boxed()),
+            Parsers.int32().repeatFold(0, 10, 0, Integer::sum)
+        }) {
+            var first = Lookahead.first(parser);
+            assertTrue(first != null && first.contains('5'), parser::toString);
+        }
+        assertTrue(Lookahead.nullable(digits.zeroOrMany()));
+        assertFalse(Lookahead.nullable(digits.repeat(1)));
+        assertFalse(Lookahead.nullable(Parsers.anyChar()));
+    }
+
+    @Test
+    void primitiveFactoriesTakeLambdas() {
+        var out = new Sink();
+        var boxed = Parsers.boxedInt((in, pos, o) -> {
+            o.longValue = 42;
+            return pos;
+        });
+        assertEquals(0, boxed.parseAt(input(""), 0, out));
+        assertEquals(42, (int) out.value());
+        var mapped = Parsers.mapChar((in, pos, o) -> Parsers.anyChar().parseAt(in, pos, o), c -> (char) c);
+        assertEquals(2, mapped.parseAt(input("\0A"), 0, out));
+        assertEquals('A', (char) out.value());
+    }
+}
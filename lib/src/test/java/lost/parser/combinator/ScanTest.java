@@ -0,0 +1,55 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * the scans against their scalar loops, vectorized in the {@code simdTest} task, which adds the vector module
+ */
+class ScanTest {
+
+    @Test
+    void scalarWithoutVectorModule() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) assertFalse(Scan.SIMD);
+    }
+
+    @Test
+    void untilMatchesScalar() {
+        var random = new Random(5);
+        var stops = new ByteClass[] {
+            ByteClass.of("\""), ByteClass.of("\"\\"), ByteClass.range('0', '9'), ByteClass.of(",;]}"), ByteClass.of("")
+        };
+        for (int i = 0; i < 2_000; i++) {
+            var bytes = new byte[random.nextInt(300)];
+            for (int j = 0; j < bytes.length; j++) bytes[j] = (byte) ('a' + random.nextInt(26));
+            for (int n = random.nextInt(3); n > 0 && bytes.length > 0; n--) {
+                bytes[random.nextInt(bytes.length)] = (byte) "\"\\5,]".charAt(random.nextInt(5));
+            }
+            var in = Input.of(ByteBuffer.wrap(bytes));
+            int from = random.nextInt(bytes.length + 1);
+            for (var stop : stops) {
+                assertEquals(
+                        Scan.until_scalar(in, from, bytes.length, stop), Scan.until(in, from, bytes.length, stop));
+            }
+        }
+    }
+
+    @Test
+    void skipWhitespacesMatchesScalar() {
+        var random = new Random(5);
+        for (int i = 0; i < 2_000; i++) {
+            var chars = new char[random.nextInt(150)];
+            int stop = random.nextInt(chars.length + 1);
+            for (int j = 0; j < chars.length; j++) chars[j] = j < stop ? " \t\n\u2003".charAt(random.nextInt(4)) : 'x';
+            var buffer = ByteBuffer.allocate(chars.length * 2 + random.nextInt(2));
+            buffer.asCharBuffer().put(chars);
+            var in = Input.of(buffer);
+            assertEquals(
+                    Scan.skipWhitespaces_scalar(in, 0, buffer.limit()), Scan.skipWhitespaces(in, 0, buffer.limit()));
+        }
+    }
+}
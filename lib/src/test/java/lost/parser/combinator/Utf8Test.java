@@ -0,0 +1,63 @@
+package lost.parser.combinator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class Utf8Test {
+
+    private static Input input(byte... bytes) {
+        return Input.of(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    void decodesLikeString() {
+        var random = new Random(23);
+        var out = new Sink();
+        for (int i = 0; i < 100_000; i++) {
+            int codePoint =
+                    switch (i % 4) {
+                        case 0 -> random.nextInt(0x80);
+                        case 1 -> random.nextInt(0x800);
+                        case 2 -> random.nextInt(0x10000);
+                        default -> random.nextInt(Character.MAX_CODE_POINT + 1);
+                    };
+            if (Character.getType(codePoint) == Character.SURROGATE) continue;
+            var bytes = (Character.toString(codePoint) + "!").getBytes(StandardCharsets.UTF_8);
+            assertEquals(bytes.length - 1, Parsers.codePoint().parseAt(input(bytes), 0, out), "U+" + codePoint);
+            assertEquals(codePoint, out.longValue());
+            assertEquals(bytes.length - 1, Parsers.utf8Char(codePoint).parseAt(input(bytes), 0, out));
+        }
+    }
+
+    @Test
+    void rejectsMalformedSequences() {
+        var out = new Sink();
+        for (var bytes : new byte[][] {
+            {(byte) 0x80},
+            {(byte) 0xC0, (byte) 0x80},
+            {(byte) 0xE0, (byte) 0x80, (byte) 0x80},
+            {(byte) 0xED, (byte) 0xA0, (byte) 0x80},
+            {(byte) 0xE2, (byte) 0x82},
+            {(byte) 0xE2, (byte) 0x82, 'x'},
+            {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+            {(byte) 0xF8, (byte) 0x88, (byte) 0x80, (byte) 0x80},
+            {}
+        }) {
+            assertEquals(Parser.FAIL, Parsers.codePoint().parseAt(input(bytes), 0, out));
+        }
+    }
+
+    @Test
+    void untilCodePoint() {
+        var bytes = "h\u00E9llo w\u00F6rld".getBytes(StandardCharsets.UTF_8);
+        var out = new Sink();
+        var in = input(bytes);
+        assertEquals(6, Parsers.untilCodePoint(Character::isWhitespace, false).parseAt(in, 0, out));
+        assertEquals("h\u00E9llo", out.<Span>value().decode(StandardCharsets.UTF_8));
+        assertEquals(7, Parsers.skipUtf8Whitespace().parseAt(in, 6, out));
+    }
+}